@@ -0,0 +1,320 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+// The operations GrapherBenchmarks measures, set up from the benchmark's name and parameters. Results go to the
+// blackhole or into buffers that outlive the call, so none of the work can be eliminated.
+public class Workloads implements Workload.Factory {
+    static final String[] EQUATIONS = {
+            "y=3x^4-2x^2+x-7",
+            "y=0.5x^3-x",
+            "x=2sin(3t);y=cos(t);0<t<2pi",
+            "x=5cos(7t);y=5sin(2t);0<t<2pi",
+    };
+    static final int POINTS = 4096;
+
+    @Override
+    public Workload create(String name, String... parameters) throws Exception {
+        switch (name) {
+            case "parse":
+                return blackhole -> {
+                    for (String equation : EQUATIONS) {
+                        blackhole.consume(EquationParser.parse(equation));
+                    }
+                    return EQUATIONS.length;
+                };
+            case "sampleGetPoint":
+            case "sampleGetPoints":
+            case "sampleAdaptive":
+                return sampling(name, sampled(parameters[0]));
+            case "sampleInterval":
+                return enclosed(parameters[0]);
+            case "polynomialYValue":
+            case "polynomialYValues":
+                return polynomial(name.endsWith("s"), parameters[0]);
+            case "functionParametric":
+                return parametric(parameters[0]);
+            case "functionExpression":
+                return expression(parameters[0], parameters[1]);
+            case "dataDecimate":
+                return decimation(parameters[0]);
+            case "exportCsv":
+                return csvExport();
+            case "exportFormat":
+                return formatting();
+            case "render":
+                return rendering(parameters[0], Integer.parseInt(parameters[1]));
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + name);
+        }
+    }
+
+    private static XYGrapher sampled(String curve) throws Exception {
+        switch (curve) {
+            case "polynomial":
+                return EquationParser.parse(EQUATIONS[0]);
+            case "chirp":
+                return EquationParser.parse("y=sin(x^2)");
+            case "parametric":
+                return EquationParser.parse(EQUATIONS[3]);
+            case "discontinuous":
+                return reciprocal();
+            default:
+                throw new IllegalArgumentException("Unknown curve: " + curve);
+        }
+    }
+
+    // 1/x with x = 0 excluded, sampled at its own fixed increment by getPoint.
+    private static XYGrapher reciprocal() {
+        return new DiscontinuousFunctionGrapher() {
+            @Override
+            public boolean exclude(double xValue) {
+                return Math.abs(xValue) < 1e-9;
+            }
+
+            @Override
+            public double yValue(double xValue) {
+                return 1 / xValue;
+            }
+
+            @Override
+            public double xIncrement() {
+                return 0.01;
+            }
+
+            @Override
+            public Coordinate xyStart() {
+                return new Coordinate(-10, -10);
+            }
+
+            @Override
+            public double xRange() {
+                return 20;
+            }
+
+            @Override
+            public double yRange() {
+                return 20;
+            }
+        };
+    }
+
+    private static Workload sampling(String name, XYGrapher grapher) {
+        SampleBuffer samples = new SampleBuffer();
+        if (name.equals("sampleGetPoint")) {
+            return blackhole -> {
+                int n = 0;
+                for (Coordinate point = grapher.getPoint(n); point != null; point = grapher.getPoint(++n)) {
+                    blackhole.consume(point);
+                }
+                return n;
+            };
+        }
+        if (name.equals("sampleGetPoints")) {
+            return blackhole -> {
+                samples.sample(grapher);
+                blackhole.consume(samples);
+                return samples.size();
+            };
+        }
+        AdaptiveSampler sampler = new AdaptiveSampler();
+        Viewport viewport = new Viewport(-10, -10, 20, 20, 1280, 720);
+        return blackhole -> {
+            sampler.sample(grapher, viewport, samples);
+            blackhole.consume(samples);
+            return samples.size();
+        };
+    }
+
+    // Counts pixel column spans, two samples each.
+    private static Workload enclosed(String curve) throws Exception {
+        XYGrapher grapher = EquationParser.parse(curve.equals("polynomial")
+                ? EQUATIONS[0] : "y=sin(1/x)+5/(1+10000000(x-1.03)^2)");
+        SampleBuffer samples = new SampleBuffer();
+        AdaptiveSampler sampler = new AdaptiveSampler();
+        sampler.setGuaranteed(true);
+        Viewport viewport = new Viewport(-10, -10, 20, 20, 1280, 720);
+        return blackhole -> {
+            sampler.sample(grapher, viewport, samples);
+            blackhole.consume(samples);
+            return samples.size() / 2;
+        };
+    }
+
+    private static Workload polynomial(boolean batched, String polynomial) throws Exception {
+        PolynomialGrapher grapher = (PolynomialGrapher) EquationParser.parse(polynomial.startsWith("dense")
+                ? "y=x^8-3x^7+2x^6-x^5+4x^4-x^3+x^2-5x+1" : "y=x^200+1");
+        double[] xs = new double[POINTS];
+        double[] out = new double[POINTS];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = -1 + 2.0 * i / xs.length;
+        }
+        if (batched) {
+            return blackhole -> {
+                grapher.yValues(xs, out, 0, xs.length);
+                blackhole.consume(out);
+                return xs.length;
+            };
+        }
+        return blackhole -> {
+            for (double x : xs) {
+                blackhole.consume(grapher.yValue(x));
+            }
+            return xs.length;
+        };
+    }
+
+    private static Workload parametric(String precision) throws Exception {
+        XYGrapher parametric = EquationParser.parse(EQUATIONS[3]);
+        Curve curve = precision.equals("exact")
+                ? parametric.curve() : AdaptiveSampler.curve(parametric, new Viewport(-10, -10, 20, 20, 1280, 720));
+        return blackhole -> {
+            for (int i = 0; i < POINTS; i++) {
+                double t = i * (2 * Math.PI / POINTS);
+                blackhole.consume(curve.x(t));
+                blackhole.consume(curve.y(t));
+            }
+            return POINTS;
+        };
+    }
+
+    // The closures a new equation starts with against the class generated once it is hot.
+    private static Workload expression(String source, String evaluator) {
+        Expression expression = ExpressionParser.parse(source.equals("trigonometric")
+                ? "2sin(3t)+cos(5t)^2/(1+t^2)-0.5t" : "(t^3-2t^2+t)/(1+t^2)-3t+0.25t^4/(2+t^2)", "t");
+        DoubleUnaryOperator function = evaluator.equals("generated")
+                ? ExpressionClassWriter.compile(expression, 0) : expression.compile();
+        return blackhole -> {
+            for (int i = 0; i < POINTS; i++) {
+                blackhole.consume(function.applyAsDouble(i * (2 * Math.PI / POINTS)));
+            }
+            return POINTS;
+        };
+    }
+
+    // Ten million points of a random walk, viewed whole, a percent at a time and fifty points at a time.
+    private static Workload decimation(String window) throws IOException {
+        Path file = randomWalk(10_000_000);
+        DataSeries series = DataSeries.readBinary(file);
+        double minX = window.equals("all") ? series.minX() : window.equals("1-percent") ? 2000 : 2500;
+        double xRange = window.equals("all") ? series.maxX() - series.minX() : window.equals("1-percent") ? 100 : 0.05;
+        Viewport viewport = new Viewport(minX, series.minY(), xRange, series.maxY() - series.minY(), 1280, 720);
+        SampleBuffer samples = new SampleBuffer();
+        return new Workload() {
+            @Override
+            public long run(Blackhole blackhole) {
+                series.decimate(viewport, samples, () -> false);
+                blackhole.consume(samples);
+                return samples.size();
+            }
+
+            @Override
+            public void close() throws IOException {
+                series.close();
+                Files.deleteIfExists(file);
+            }
+        };
+    }
+
+    // Writes x = i / 1000 and a Gaussian random walk as little-endian doubles to a temporary file.
+    private static Path randomWalk(int points) throws IOException {
+        Path file = Files.createTempFile("walk", ".bin");
+        file.toFile().deleteOnExit();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(1);
+        double y = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < points; i++) {
+                if (buffer.remaining() < 16) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                    buffer.clear();
+                }
+                y += random.nextGaussian();
+                buffer.putDouble(i / 1000.0).putDouble(y);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+        return file;
+    }
+
+    // A million rows of two functions and a parametric curve.
+    private static Workload csvExport() throws Exception {
+        List<XYGrapher> graphers = new ArrayList<>();
+        for (String equation : new String[]{EQUATIONS[0], "y=sin(x)/x", EQUATIONS[3]}) {
+            graphers.add(EquationParser.parse(equation));
+        }
+        ValueTable values = new ValueTable(graphers, 0, 99999.9, 0.1);
+        Path file = Files.createTempFile("values", ".csv");
+        file.toFile().deleteOnExit();
+        return new Workload() {
+            @Override
+            public long run(Blackhole blackhole) throws IOException {
+                blackhole.consume(values.writeCsv(file, () -> false));
+                return values.rows();
+            }
+
+            @Override
+            public void close() throws IOException {
+                Files.deleteIfExists(file);
+            }
+        };
+    }
+
+    private static Workload formatting() {
+        byte[] text = new byte[32];
+        double[] numbers = new double[POINTS];
+        Random random = new Random(2);
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = random.nextGaussian();
+        }
+        return blackhole -> {
+            for (double number : numbers) {
+                blackhole.consume(ValueTable.format(number, text, 0));
+            }
+            blackhole.consume(text);
+            return numbers.length;
+        };
+    }
+
+    // One frame of the given number of equations, drawn to an off-screen image.
+    private static Workload rendering(String resolution, int equations) throws Exception {
+        int x = resolution.indexOf('x');
+        int width = Integer.parseInt(resolution.substring(0, x));
+        int height = Integer.parseInt(resolution.substring(x + 1));
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Viewport viewport = new Viewport(-10, -10, 20, 20, width, height);
+        XYGrapher[] graphers = new XYGrapher[equations];
+        for (int i = 0; i < equations; i++) {
+            graphers[i] = EquationParser.parse(EQUATIONS[i % EQUATIONS.length]);
+        }
+        SampleBuffer samples = new SampleBuffer();
+        AdaptiveSampler sampler = new AdaptiveSampler();
+        return blackhole -> {
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                GrapherUtils.drawGraph(g, graphers, viewport, samples, sampler);
+            } finally {
+                g.dispose();
+            }
+            blackhole.consume(image);
+            return 1;
+        };
+    }
+}
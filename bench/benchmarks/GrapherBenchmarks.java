@@ -0,0 +1,234 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Throughput of the parsing, sampling, evaluation, export and rendering hot paths. Every benchmark runs in its own
+// forked JVMs, so call sites profiled by one benchmark cannot slow down the next. The sampling benchmarks report a
+// points counter alongside the invocation rate.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GrapherBenchmarks {
+    // Must match Workloads.POINTS.
+    private static final int POINTS = 4096;
+
+    // Builds the workload named after the benchmark method once per trial.
+    public abstract static class Fixture {
+        Workload workload;
+
+        abstract String[] parameters();
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkParams params) throws Exception {
+            String benchmark = params.getBenchmark();
+            workload = Workload.create(benchmark.substring(benchmark.lastIndexOf('.') + 1), parameters());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            workload.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Plain extends Fixture {
+        @Override
+        String[] parameters() {
+            return new String[0];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Sampled extends Fixture {
+        @Param({"polynomial", "chirp", "parametric", "discontinuous"})
+        public String curve;
+
+        @Override
+        String[] parameters() {
+            return new String[]{curve};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Enclosed extends Fixture {
+        @Param({"polynomial", "pathological"})
+        public String enclosed;
+
+        @Override
+        String[] parameters() {
+            return new String[]{enclosed};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Polynomials extends Fixture {
+        @Param({"dense-degree-8", "sparse-degree-200"})
+        public String polynomial;
+
+        @Override
+        String[] parameters() {
+            return new String[]{polynomial};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ParametricCurves extends Fixture {
+        @Param({"exact", "tiered"})
+        public String precision;
+
+        @Override
+        String[] parameters() {
+            return new String[]{precision};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Expressions extends Fixture {
+        @Param({"trigonometric", "rational"})
+        public String expression;
+
+        @Param({"interpreted", "generated"})
+        public String evaluator;
+
+        @Override
+        String[] parameters() {
+            return new String[]{expression, evaluator};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DataWindows extends Fixture {
+        @Param({"all", "1-percent", "50-points"})
+        public String window;
+
+        @Override
+        String[] parameters() {
+            return new String[]{window};
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Frames extends Fixture {
+        @Param({"640x480", "1920x1080"})
+        public String resolution;
+
+        @Param({"1", "10", "50"})
+        public String equations;
+
+        @Override
+        String[] parameters() {
+            return new String[]{resolution, equations};
+        }
+    }
+
+    // Samples produced, reported as a rate next to the invocation rate.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Points {
+        public long points;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            points = 0;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(4)
+    public long parse(Plain state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    public void sampleGetPoint(Sampled state, Points points, Blackhole blackhole) throws Exception {
+        points.points += state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    public void sampleGetPoints(Sampled state, Points points, Blackhole blackhole) throws Exception {
+        points.points += state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    public void sampleAdaptive(Sampled state, Points points, Blackhole blackhole) throws Exception {
+        points.points += state.workload.run(blackhole);
+    }
+
+    // Points here are pixel column spans.
+    @Benchmark
+    public void sampleInterval(Enclosed state, Points points, Blackhole blackhole) throws Exception {
+        points.points += state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long polynomialYValue(Polynomials state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long polynomialYValues(Polynomials state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long functionParametric(ParametricCurves state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long functionExpression(Expressions state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    // Frames per second of the decimated series.
+    @Benchmark
+    public long dataDecimate(DataWindows state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    // Milliseconds per million-row file.
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long exportCsv(Plain state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public long exportFormat(Plain state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+
+    // Frames per second.
+    @Benchmark
+    public long render(Frames state, Blackhole blackhole) throws Exception {
+        return state.workload.run(blackhole);
+    }
+}
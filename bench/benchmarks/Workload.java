@@ -0,0 +1,25 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+// One benchmarked operation, built by the Workloads class in the unnamed package. JMH will not generate code for
+// benchmarks in the unnamed package, and named packages cannot refer to the app's classes there, so the benchmarks
+// reach them through this interface. Each fork runs one benchmark, so the interface call stays monomorphic.
+public interface Workload extends AutoCloseable {
+    // Runs one invocation and returns how many units of work (points, spans) it performed.
+    long run(Blackhole blackhole) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+
+    // Implemented by Workloads; the name is the benchmark method's.
+    interface Factory {
+        Workload create(String name, String... parameters) throws Exception;
+    }
+
+    static Workload create(String name, String... parameters) throws Exception {
+        Factory factory = (Factory) Class.forName("Workloads").getDeclaredConstructor().newInstance();
+        return factory.create(name, parameters);
+    }
+}
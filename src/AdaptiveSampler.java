@@ -0,0 +1,280 @@
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+
+public class AdaptiveSampler {
+    public static final double DEFAULT_TOLERANCE = 0.5;
+    public static final int DEFAULT_MAX_SAMPLES = 20000;
+
+    private static final int INITIAL_SEGMENTS = 64;
+    private static final int MAX_DEPTH = 9;
+    private static final double PIXELS_PER_SEGMENT = 10;
+    private static final int BISECTION_STEPS = 40;
+    // A chord still this long (in pixels) after bisecting down to the last representable step is a real jump.
+    private static final double JUMP_PIXELS = 2;
+    // A chord where one of the three gaps between the end points and probes spans this much of it looks like a step.
+    private static final double LOPSIDED_GAP = 0.9;
+    // Function approximations may move the curve by at most this many pixels.
+    private static final double APPROXIMATION_PIXELS = 0.1;
+
+    private final MarchingSquares contours = new MarchingSquares();
+    private final IntervalPlotter intervals = new IntervalPlotter();
+    private double tolerance;
+    private int maxSamples;
+    private volatile boolean guaranteed;
+
+    public AdaptiveSampler() {
+        this(DEFAULT_TOLERANCE, DEFAULT_MAX_SAMPLES);
+    }
+
+    public AdaptiveSampler(double tolerance, int maxSamples) {
+        setTolerance(tolerance);
+        setMaxSamples(maxSamples);
+    }
+
+    public double getTolerance() { return tolerance; }
+
+    public void setTolerance(double tolerance) {
+        if (!(tolerance > 0)) throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        this.tolerance = tolerance;
+    }
+
+    public int getMaxSamples() { return maxSamples; }
+
+    public void setMaxSamples(int maxSamples) {
+        if (maxSamples < INITIAL_SEGMENTS + 1) throw new IllegalArgumentException("Sample cap too small: " + maxSamples);
+        this.maxSamples = maxSamples;
+    }
+
+    public boolean isGuaranteed() { return guaranteed; }
+
+    // When set, graphers with an interval extension are plotted with IntervalPlotter instead of by sampling, so
+    // nothing between samples can be missed. It is slower, and meant for pathological functions and reference plots.
+    public void setGuaranteed(boolean guaranteed) {
+        this.guaranteed = guaranteed;
+    }
+
+    public void sample(XYGrapher grapher, Viewport viewport, SampleBuffer out) {
+        sample(grapher, viewport, out, () -> false);
+    }
+
+    // Returns false if sampling was abandoned because cancelled became true.
+    public boolean sample(XYGrapher grapher, Viewport viewport, SampleBuffer out, BooleanSupplier cancelled) {
+        if (grapher instanceof ImplicitGrapher) {
+            out.clear();
+            return contours.contour((ImplicitGrapher) grapher, viewport, out, cancelled);
+        }
+        if (grapher instanceof DataSeriesGrapher) {
+            return ((DataSeriesGrapher) grapher).getSeries().decimate(viewport, out, cancelled);
+        }
+        UnaryOperator<Interval> function = guaranteed ? grapher.intervalFunction() : null;
+        if (function != null) return enclose(grapher, function, viewport, out, cancelled);
+        return sampleCurve(grapher, viewport, out, cancelled);
+    }
+
+    private boolean sampleCurve(XYGrapher grapher, Viewport viewport, SampleBuffer out, BooleanSupplier cancelled) {
+        Curve curve = curve(grapher, viewport);
+        if (curve == null) {
+            out.sample(grapher);
+            return !cancelled.getAsBoolean();
+        }
+        out.clear();
+        double tStart = grapher.curveStart(viewport);
+        double tEnd = grapher.curveEnd(viewport);
+        return sample(curve, tStart, tEnd, initialSegments(grapher, tStart, tEnd, viewport), viewport, out, cancelled);
+    }
+
+    // Replaces out with spans covering every pixel of the viewport that the graph of function, the grapher's
+    // interval extension, passes through. A function whose enclosures will not narrow takes more than the plotter's
+    // budget, and is sampled like any other curve instead.
+    public boolean enclose(XYGrapher grapher, UnaryOperator<Interval> function, Viewport viewport, SampleBuffer out,
+                           BooleanSupplier cancelled) {
+        out.clear();
+        IntervalPlotter.Result result = intervals.plot(function, viewport, out, cancelled);
+        if (result == IntervalPlotter.Result.OVER_BUDGET) return sampleCurve(grapher, viewport, out, cancelled);
+        return result == IntervalPlotter.Result.COMPLETE;
+    }
+
+    // The grapher's curve at the cheapest precision that stays visually identical at this viewport's scale.
+    public static Curve curve(XYGrapher grapher, Viewport viewport) {
+        return grapher.curve(APPROXIMATION_PIXELS * viewport.xPerPixel(), APPROXIMATION_PIXELS * viewport.yPerPixel());
+    }
+
+    // Function graphers are parameterised by x, so a narrow strip needs proportionally fewer starting segments.
+    public static int initialSegments(XYGrapher grapher, double tStart, double tEnd, Viewport viewport) {
+        if (!(grapher instanceof FunctionGrapher)) return INITIAL_SEGMENTS;
+        double pixels = (tEnd - tStart) / viewport.xPerPixel();
+        return (int) Math.max(1, Math.min(INITIAL_SEGMENTS, Math.ceil(pixels / PIXELS_PER_SEGMENT)));
+    }
+
+    // Appends samples for [tStart, tEnd] to out, including both end points.
+    public boolean sample(Curve curve, double tStart, double tEnd, int segments, Viewport viewport, SampleBuffer out,
+                          BooleanSupplier cancelled) {
+        if (!(tEnd >= tStart)) return true;
+
+        double step = (tEnd - tStart) / segments;
+        double t0 = tStart;
+        double x0 = curve.x(t0);
+        double y0 = curve.y(t0);
+        emit(out, x0, y0);
+
+        for (int i = 1; i <= segments; i++) {
+            if (cancelled.getAsBoolean()) return false;
+            double t1 = i == segments ? tEnd : tStart + i * step;
+            double x1 = curve.x(t1);
+            double y1 = curve.y(t1);
+            refine(curve, viewport, out, t0, x0, y0, t1, x1, y1, 0);
+            t0 = t1;
+            x0 = x1;
+            y0 = y1;
+        }
+        return true;
+    }
+
+    // Emits every sample in (t0, t1]; the point at t0 has already been written by the caller. Segments are
+    // probed at two interior points so a single probe landing back on the chord cannot hide an oscillation.
+    private void refine(Curve curve, Viewport viewport, SampleBuffer out,
+                        double t0, double x0, double y0, double t1, double x1, double y1, int depth) {
+        if (depth < MAX_DEPTH && out.size() < maxSamples) {
+            double ta = t0 + (t1 - t0) / 3;
+            double tb = t1 - (t1 - t0) / 3;
+            double xa = curve.x(ta);
+            double ya = curve.y(ta);
+            double xb = curve.x(tb);
+            double yb = curve.y(tb);
+            if (needsRefinement(viewport, x0, y0, xa, ya, xb, yb, x1, y1)) {
+                refine(curve, viewport, out, t0, x0, y0, ta, xa, ya, depth + 1);
+                refine(curve, viewport, out, ta, xa, ya, tb, xb, yb, depth + 1);
+                refine(curve, viewport, out, tb, xb, yb, t1, x1, y1, depth + 1);
+                return;
+            }
+        } else if (depth >= MAX_DEPTH && isSuspectedBreak(viewport, x0, y0, x1, y1)) {
+            locateBreak(curve, viewport, out, t0, x0, y0, t1, x1, y1);
+        }
+        emit(out, x1, y1);
+    }
+
+    private static boolean isSuspectedBreak(Viewport viewport, double x0, double y0, double x1, double y1) {
+        boolean finite0 = isFinite(x0, y0);
+        boolean finite1 = isFinite(x1, y1);
+        if (finite0 != finite1) return true;
+        if (!finite0) return false;
+        return pixelDistance(viewport, x0, y0, x1, y1) > JUMP_PIXELS;
+    }
+
+    // Bisects a segment that refinement could not resolve, following the half with the larger jump (or the edge of
+    // the curve's domain). If the jump survives, the pen is lifted there: the left point only accepts an incoming
+    // line and the right point only starts an outgoing one. A steep but continuous curve shrinks to nothing instead.
+    private void locateBreak(Curve curve, Viewport viewport, SampleBuffer out,
+                             double t0, double x0, double y0, double t1, double x1, double y1) {
+        double tLow = t0, xLow = x0, yLow = y0;
+        double tHigh = t1, xHigh = x1, yHigh = y1;
+
+        for (int i = 0; i < BISECTION_STEPS; i++) {
+            double tm = 0.5 * (tLow + tHigh);
+            if (tm <= tLow || tm >= tHigh) break;
+            double xm = curve.x(tm);
+            double ym = curve.y(tm);
+
+            boolean finiteLow = isFinite(xLow, yLow);
+            boolean finiteMid = isFinite(xm, ym);
+            boolean goLeft;
+            if (finiteLow != isFinite(xHigh, yHigh)) {
+                goLeft = finiteLow != finiteMid;
+            } else {
+                goLeft = pixelDistance(viewport, xLow, yLow, xm, ym) >= pixelDistance(viewport, xm, ym, xHigh, yHigh);
+            }
+            if (goLeft) {
+                tHigh = tm;
+                xHigh = xm;
+                yHigh = ym;
+            } else {
+                tLow = tm;
+                xLow = xm;
+                yLow = ym;
+            }
+        }
+
+        boolean finiteLow = isFinite(xLow, yLow);
+        boolean finiteHigh = isFinite(xHigh, yHigh);
+        if (finiteLow && finiteHigh && pixelDistance(viewport, xLow, yLow, xHigh, yHigh) <= JUMP_PIXELS) return;
+
+        if (finiteLow) out.add(xLow, yLow, SampleBuffer.DRAW_TO);
+        if (finiteHigh) out.add(xHigh, yHigh, SampleBuffer.DRAW_FROM);
+    }
+
+    private static double pixelDistance(Viewport viewport, double x0, double y0, double x1, double y1) {
+        double dx = viewport.toPixelX(x1) - viewport.toPixelX(x0);
+        double dy = viewport.toPixelY(y1) - viewport.toPixelY(y0);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private boolean needsRefinement(Viewport viewport, double x0, double y0, double xa, double ya,
+                                    double xb, double yb, double x1, double y1) {
+        boolean finite0 = isFinite(x0, y0);
+        boolean finiteA = isFinite(xa, ya);
+        boolean finiteB = isFinite(xb, yb);
+        boolean finite1 = isFinite(x1, y1);
+        if (!finite0 && !finiteA && !finiteB && !finite1) return false;
+        if (!finite0 || !finiteA || !finiteB || !finite1) return true;
+
+        double px0 = viewport.toPixelX(x0);
+        double py0 = viewport.toPixelY(y0);
+        double pxa = viewport.toPixelX(xa);
+        double pya = viewport.toPixelY(ya);
+        double pxb = viewport.toPixelX(xb);
+        double pyb = viewport.toPixelY(yb);
+        double px1 = viewport.toPixelX(x1);
+        double py1 = viewport.toPixelY(y1);
+
+        if (isOffScreen(viewport.pixelsWide(), viewport.pixelsHigh(), px0, py0, pxa, pya, pxb, pyb, px1, py1)) {
+            return false;
+        }
+
+        if (deviation(px0, py0, px1, py1, pxa, pya) > tolerance
+                || deviation(px0, py0, px1, py1, pxb, pyb) > tolerance) {
+            return true;
+        }
+        // Probes visited out of order along the chord mean the curve reverses inside the segment.
+        double dx = px1 - px0;
+        double dy = py1 - py0;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        if ((pxb - pxa) * dx + (pyb - pya) * dy < -tolerance * length) return true;
+
+        // All probes bunched at one end of a long chord: keep splitting so a jump reaches the break detection.
+        if (length > JUMP_PIXELS) {
+            double gap = Math.max(Math.hypot(pxa - px0, pya - py0),
+                    Math.max(Math.hypot(pxb - pxa, pyb - pya), Math.hypot(px1 - pxb, py1 - pyb)));
+            return gap > LOPSIDED_GAP * length;
+        }
+        return false;
+    }
+
+    // Distance to the chord segment rather than its line, so a curve that doubles back along the chord still counts.
+    private static double deviation(double px0, double py0, double px1, double py1, double px, double py) {
+        double dx = px1 - px0;
+        double dy = py1 - py0;
+        double ex = px - px0;
+        double ey = py - py0;
+        double lengthSquared = dx * dx + dy * dy;
+        double projection = lengthSquared < 1e-12 ? 0 : Math.max(0, Math.min(1, (ex * dx + ey * dy) / lengthSquared));
+        double ox = ex - projection * dx;
+        double oy = ey - projection * dy;
+        return Math.sqrt(ox * ox + oy * oy);
+    }
+
+    private static boolean isOffScreen(double w, double h, double px0, double py0, double pxa, double pya,
+                                       double pxb, double pyb, double px1, double py1) {
+        return (py0 < 0 && pya < 0 && pyb < 0 && py1 < 0)
+                || (py0 > h && pya > h && pyb > h && py1 > h)
+                || (px0 < 0 && pxa < 0 && pxb < 0 && px1 < 0)
+                || (px0 > w && pxa > w && pxb > w && px1 > w);
+    }
+
+    private static void emit(SampleBuffer out, double x, double y) {
+        out.add(x, y, isFinite(x, y) ? SampleBuffer.CONNECTED : 0);
+    }
+
+    private static boolean isFinite(double x, double y) {
+        return Double.isFinite(x) && Double.isFinite(y);
+    }
+}
@@ -0,0 +1,220 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+
+// Renders equation sets read from a file to PNGs without a display. Sets are separated by blank lines and use
+// the same syntax as the equation boxes; lines starting with # are ignored.
+public class BatchRenderer {
+    private final Path outputDirectory;
+    private final Viewport viewport;
+    private final int threads;
+    private final ThreadLocal<Worker> workers;
+
+    public BatchRenderer(Path outputDirectory, Viewport viewport, int threads) {
+        this(outputDirectory, viewport, threads, false);
+    }
+
+    // With guaranteed set, functions are plotted with interval arithmetic, for reference images in regression checks.
+    public BatchRenderer(Path outputDirectory, Viewport viewport, int threads, boolean guaranteed) {
+        this.outputDirectory = outputDirectory;
+        this.viewport = viewport;
+        this.threads = threads;
+        this.workers = ThreadLocal.withInitial(() -> new Worker(viewport, guaranteed));
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        Path input = null;
+        Path output = Paths.get("plots");
+        int width = 800;
+        int height = 600;
+        double[] window = {-10, -10, 20, 20};
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean guaranteed = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "--size": {
+                    String[] size = args[++i].split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                    break;
+                }
+                case "--window": {
+                    String[] parts = args[++i].split(",");
+                    for (int j = 0; j < 4; j++) window[j] = Double.parseDouble(parts[j]);
+                    break;
+                }
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--guaranteed":
+                    guaranteed = true;
+                    break;
+                default:
+                    input = Paths.get(args[i]);
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: BatchRenderer <equations file> [--out dir] [--size WxH] "
+                    + "[--window minX,minY,xRange,yRange] [--threads n] [--guaranteed]");
+            System.exit(2);
+        }
+
+        Files.createDirectories(output);
+        Viewport viewport = new Viewport(window[0], window[1], window[2], window[3], width, height);
+        List<JobResult> results = new BatchRenderer(output, viewport, threads, guaranteed).render(input);
+        printReport(results);
+    }
+
+    public List<JobResult> render(Path input) throws IOException, InterruptedException {
+        // A bounded queue with caller-runs back-pressure keeps at most a few sets and images in flight.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+        List<JobResult> results = new CopyOnWriteArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            List<String> equations = new ArrayList<>();
+            int jobNumber = 0;
+            String line;
+            do {
+                line = reader.readLine();
+                String trimmed = line == null ? "" : line.trim();
+                if (trimmed.startsWith("#")) continue;
+                if (!trimmed.isEmpty()) {
+                    equations.add(trimmed);
+                } else if (!equations.isEmpty()) {
+                    String[] set = equations.toArray(new String[0]);
+                    int number = ++jobNumber;
+                    executor.execute(() -> results.add(renderJob(number, set)));
+                    equations.clear();
+                }
+            } while (line != null);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        List<JobResult> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> Integer.compare(a.jobNumber, b.jobNumber));
+        return sorted;
+    }
+
+    // Per-curve metrics are keyed by equation, so each job drops those of the jobs before it; otherwise a long run
+    // would keep an entry for every distinct equation it ever drew.
+    private JobResult renderJob(int jobNumber, String[] equations) {
+        JobResult result = new JobResult(jobNumber, equations.length);
+        Worker worker = workers.get();
+        List<String> labels = new ArrayList<>(equations.length);
+        try {
+            long start = System.nanoTime();
+            XYGrapher[] graphers = new XYGrapher[equations.length];
+            for (int i = 0; i < equations.length; i++) {
+                graphers[i] = EquationParser.parse(equations[i]);
+                labels.add(graphers[i].getLabel());
+                graphers[i].setGraphColor(GrapherUtils.CURVE_COLORS[i % GrapherUtils.CURVE_COLORS.length]);
+            }
+            long parsed = System.nanoTime();
+
+            worker.draw(graphers);
+            long rendered = System.nanoTime();
+
+            Path file = outputDirectory.resolve(String.format(Locale.ROOT, "plot-%05d.png", jobNumber));
+            ImageIO.write(worker.image, "png", file.toFile());
+            long written = System.nanoTime();
+
+            result.parseNanos = parsed - start;
+            result.renderNanos = rendered - parsed;
+            result.writeNanos = written - rendered;
+            result.file = file;
+        } catch (Exception e) {
+            result.error = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            RenderMetrics.get().retainCurves(labels);
+        }
+        return result;
+    }
+
+    private static void printReport(List<JobResult> results) {
+        long parse = 0;
+        long render = 0;
+        long write = 0;
+        int failed = 0;
+        System.out.println(" job  equations   parse ms  render ms   write ms  output");
+        for (JobResult result : results) {
+            System.out.println(result);
+            parse += result.parseNanos;
+            render += result.renderNanos;
+            write += result.writeNanos;
+            if (result.error != null) failed++;
+        }
+        System.out.printf(Locale.ROOT, "%d jobs (%d failed); total parse %.1f ms, render %.1f ms, write %.1f ms%n",
+                results.size(), failed, parse / 1e6, render / 1e6, write / 1e6);
+    }
+
+    // Each pool thread reuses one image and one sample buffer across all the jobs it runs.
+    private static final class Worker {
+        final Viewport viewport;
+        final BufferedImage image;
+        final SampleBuffer samples = new SampleBuffer();
+        final AdaptiveSampler sampler = new AdaptiveSampler();
+
+        Worker(Viewport viewport, boolean guaranteed) {
+            this.viewport = viewport;
+            this.image = new BufferedImage(viewport.pixelsWide(), viewport.pixelsHigh(), BufferedImage.TYPE_INT_RGB);
+            sampler.setGuaranteed(guaranteed);
+        }
+
+        void draw(XYGrapher[] graphers) {
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                GrapherUtils.drawGraph(g, graphers, viewport, samples, sampler);
+            } finally {
+                g.dispose();
+            }
+        }
+    }
+
+    public static final class JobResult {
+        private final int jobNumber;
+        private final int equationCount;
+        private long parseNanos;
+        private long renderNanos;
+        private long writeNanos;
+        private Path file;
+        private String error;
+
+        JobResult(int jobNumber, int equationCount) {
+            this.jobNumber = jobNumber;
+            this.equationCount = equationCount;
+        }
+
+        public int getJobNumber() { return jobNumber; }
+
+        public Path getFile() { return file; }
+
+        public String getError() { return error; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%4d  %9d  %9.2f  %9.2f  %9.2f  %s", jobNumber, equationCount,
+                    parseNanos / 1e6, renderNanos / 1e6, writeNanos / 1e6, error != null ? "FAILED: " + error : file);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+public interface Curve {
+    double x(double t);
+    double y(double t);
+}
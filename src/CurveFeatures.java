@@ -0,0 +1,116 @@
+// Roots and turning points of a function graph in a viewport. Sign changes of y and of y' are bracketed between
+// pixel columns; roots are then polished with Newton steps using the exact derivative, falling back to bisection
+// whenever a step would leave the bracket, and turning points with the same safeguard around secant steps on y'.
+// A turning point within a pixel of y = 0 is also a root, one where the graph touches the axis without crossing it.
+public final class CurveFeatures {
+    public static final byte ROOT = 0;
+    public static final byte MINIMUM = 1;
+    public static final byte MAXIMUM = 2;
+
+    // More features than this in one view are too dense to mark, so none are reported.
+    public static final int MAX_FEATURES = 64;
+
+    private static final int MAX_STEPS = 60;
+
+    private final double[] xs = new double[MAX_FEATURES];
+    private final double[] ys = new double[MAX_FEATURES];
+    private final byte[] kinds = new byte[MAX_FEATURES];
+    private int size;
+
+    private CurveFeatures() {
+    }
+
+    public int size() { return size; }
+
+    public double x(int i) { return xs[i]; }
+
+    public double y(int i) { return ys[i]; }
+
+    public byte kind(int i) { return kinds[i]; }
+
+    // The curve must be a function graph, with x(t) = t.
+    public static CurveFeatures find(DifferentiableCurve curve, Viewport viewport) {
+        CurveFeatures features = new CurveFeatures();
+        double[] p0 = new double[4];
+        double[] p1 = new double[4];
+        double step = viewport.xPerPixel();
+        double x0 = viewport.minX();
+        curve.evaluate(x0, p0);
+
+        for (int i = 1; i <= viewport.pixelsWide(); i++) {
+            double x1 = viewport.minX() + i * step;
+            curve.evaluate(x1, p1);
+            if (isFinite(p0[1], p1[1]) && (p0[1] > 0) != (p1[1] > 0)) {
+                double root = solve(curve, x0, x1, false);
+                if (!features.add(curve, root, ROOT, viewport)) return new CurveFeatures();
+            }
+            if (isFinite(p0[3], p1[3]) && (p0[3] > 0) != (p1[3] > 0)) {
+                double turn = solve(curve, x0, x1, true);
+                byte kind = p0[3] > 0 ? MAXIMUM : MINIMUM;
+                if (!features.add(curve, turn, kind, viewport)) return new CurveFeatures();
+                if (!features.add(curve, turn, ROOT, viewport)) return new CurveFeatures();
+            }
+            double[] swap = p0;
+            p0 = p1;
+            p1 = swap;
+            x0 = x1;
+        }
+        return features;
+    }
+
+    // Keeps the point if the curve is really there: a sign change across a pole or jump converges to a point where y
+    // is off the view or undefined, and a turning point offered as a root must lie on the axis. Returns false once
+    // there are too many features.
+    private boolean add(DifferentiableCurve curve, double x, byte kind, Viewport viewport) {
+        double[] point = new double[4];
+        curve.evaluate(x, point);
+        double y = kind == ROOT ? 0 : point[1];
+        if (!Double.isFinite(point[1]) || point[1] < viewport.minY() || point[1] > viewport.maxY()) return true;
+        if (kind == ROOT && Math.abs(point[1]) > viewport.yPerPixel()) return true;
+        // Features arrive in x order, but a touching root can follow a crossing one found in the same column.
+        for (int i = size - 1; i >= 0 && xs[i] > x - viewport.xPerPixel(); i--) {
+            if (kinds[i] == kind && Math.abs(xs[i] - x) < viewport.xPerPixel()) return true;
+        }
+        if (size == MAX_FEATURES) return false;
+        xs[size] = x;
+        ys[size] = y;
+        kinds[size] = kind;
+        size++;
+        return true;
+    }
+
+    // Finds where y (or y', for turning points) changes sign between low and high.
+    private static double solve(DifferentiableCurve curve, double low, double high, boolean turning) {
+        double[] point = new double[4];
+        int value = turning ? 3 : 1;
+        curve.evaluate(low, point);
+        double fLow = point[value];
+        boolean lowPositive = fLow > 0;
+        curve.evaluate(high, point);
+        double fHigh = point[value];
+
+        double x = 0.5 * (low + high);
+        for (int i = 0; i < MAX_STEPS; i++) {
+            curve.evaluate(x, point);
+            double f = point[value];
+            if (f == 0 || !Double.isFinite(f)) return x;
+            if ((f > 0) == lowPositive) {
+                low = x;
+                fLow = f;
+            } else {
+                high = x;
+                fHigh = f;
+            }
+            double next = turning ? low - fLow * (high - low) / (fHigh - fLow) : x - f / point[3];
+            // Bisect when a step leaves the bracket, and every few steps so a one-sided secant cannot stall.
+            if (!(next > low && next < high) || i % 4 == 3) next = 0.5 * (low + high);
+            if (next == x) return x;
+            x = next;
+        }
+        return x;
+    }
+
+    private static boolean isFinite(double a, double b) {
+        return Double.isFinite(a) && Double.isFinite(b);
+    }
+}
@@ -0,0 +1,122 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Keeps each curve rasterized in its own image so unchanged curves are composited rather than redrawn. Layers are
+// full-panel images at device resolution, so their total size is capped: curves past the budget are drawn straight
+// onto the panel each frame instead.
+public class CurveLayerCache {
+    // About eight 1080p layers, or two on a display scaled 2x.
+    public static final long DEFAULT_BUDGET_BYTES = 64L << 20;
+
+    private final long budgetBytes;
+    private final Map<XYGrapher, Layer> layers = new HashMap<>();
+    private final Set<XYGrapher> layered = new HashSet<>();
+
+    public CurveLayerCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public CurveLayerCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public void paint(Graphics g, RenderedCurve[] curves, Viewport viewport, GraphicsConfiguration configuration) {
+        GrapherUtils.drawAxes(g, viewport);
+
+        double deviceScale = ((Graphics2D) g).getTransform().getScaleX();
+        long layerBytes = (long) Math.ceil(viewport.pixelsWide() * deviceScale)
+                * (long) Math.ceil(viewport.pixelsHigh() * deviceScale) * Integer.BYTES;
+        long used = 0;
+        layered.clear();
+        for (RenderedCurve curve : curves) {
+            if (curve == null) continue;
+            if (used + layerBytes > budgetBytes) {
+                GrapherUtils.drawCurve((Graphics2D) g, curve, viewport);
+                continue;
+            }
+            used += layerBytes;
+            layered.add(curve.getGrapher());
+
+            Layer layer = layers.get(curve.getGrapher());
+            if (layer == null) {
+                layer = new Layer();
+                layers.put(curve.getGrapher(), layer);
+            }
+            layer.paint(g, curve, viewport, configuration);
+        }
+        layers.keySet().retainAll(layered);
+    }
+
+    public void clear() {
+        layers.clear();
+    }
+
+    private static final class Layer {
+        private BufferedImage image;
+        private double scale;
+        private SampleBuffer samples;
+        private CurveFeatures features;
+        private Color color;
+        private Viewport viewport;
+
+        void paint(Graphics g, RenderedCurve curve, Viewport target, GraphicsConfiguration configuration) {
+            // Rasterize at device resolution so layers stay sharp on scaled displays.
+            double deviceScale = ((Graphics2D) g).getTransform().getScaleX();
+            boolean sameContent = image != null && samples == curve.getSamples() && features == curve.getFeatures()
+                    && color.equals(curve.getColor());
+            boolean sameSize = image != null && scale == deviceScale
+                    && viewport.pixelsWide() == target.pixelsWide() && viewport.pixelsHigh() == target.pixelsHigh();
+
+            if (sameContent && sameSize && viewport == target) {
+                draw(g, 0, 0);
+                return;
+            }
+            // While a pan is waiting for fresh samples the old raster is still exact, just shifted.
+            if (sameContent && sameSize && viewport.xPerPixel() == target.xPerPixel()
+                    && viewport.yPerPixel() == target.yPerPixel()) {
+                draw(g, (int) Math.round(target.toPixelX(viewport.minX())), (int) Math.round(target.toPixelY(viewport.maxY())));
+                return;
+            }
+
+            rasterize(curve, target, deviceScale, configuration);
+            draw(g, 0, 0);
+        }
+
+        private void draw(Graphics g, int x, int y) {
+            g.drawImage(image, x, y, viewport.pixelsWide(), viewport.pixelsHigh(), null);
+        }
+
+        private void rasterize(RenderedCurve curve, Viewport target, double deviceScale, GraphicsConfiguration configuration) {
+            int width = (int) Math.ceil(target.pixelsWide() * deviceScale);
+            int height = (int) Math.ceil(target.pixelsHigh() * deviceScale);
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                image = configuration != null
+                        ? configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                        : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            }
+
+            long start = System.nanoTime();
+            Graphics2D g2 = image.createGraphics();
+            try {
+                g2.setComposite(AlphaComposite.Clear);
+                g2.fillRect(0, 0, width, height);
+                g2.setComposite(AlphaComposite.SrcOver);
+                g2.scale(deviceScale, deviceScale);
+                GrapherUtils.drawCurve(g2, curve, target);
+            } finally {
+                g2.dispose();
+            }
+            RenderMetrics.get().recordRasterization(curve.getGrapher().getLabel(), System.nanoTime() - start);
+
+            scale = deviceScale;
+            samples = curve.getSamples();
+            features = curve.getFeatures();
+            color = curve.getColor();
+            viewport = target;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+// Measured (x, y) points, held in memory-mapped files rather than on the heap. The point file is little-endian
+// doubles, x and y interleaved, with x never decreasing; a NaN y leaves a gap. CSV input is converted to that format in
+// a temporary file first. A pyramid of per-bucket y minima and maxima, each level grouping BRANCHING buckets of the
+// one below, is built alongside, so a view is drawn from the level whose buckets are about a pixel wide and costs a
+// few samples per pixel column however many points it spans. Closing a series deletes its temporary files.
+public final class DataSeries implements Closeable {
+    private static final int BRANCHING = 8;
+    // Raw points are drawn as they are while there are no more than this many per pixel column.
+    private static final int RAW_POINTS_PER_PIXEL = 2;
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 16;
+    // As many points as one mapping, which is limited to 2 GB, can hold.
+    private static final long MAX_POINTS = Integer.MAX_VALUE / (2 * Double.BYTES);
+    private static final long CSV_CHUNK_BYTES = 1L << 20;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    private final DoubleBuffer points;
+    private final int size;
+    // levels[k] holds the minimum and maximum y of each bucket of BRANCHING^(k + 1) points; spans[k] is that count.
+    private final DoubleBuffer[] levels;
+    private final long[] spans;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    // The converted CSV, if any, and the pyramid.
+    private final List<Path> temporaryFiles;
+
+    private DataSeries(DoubleBuffer points, int size, DoubleBuffer[] levels, long[] spans, double minY, double maxY,
+                       List<Path> temporaryFiles) {
+        this.points = points;
+        this.size = size;
+        this.levels = levels;
+        this.spans = spans;
+        this.minX = points.get(0);
+        this.maxX = points.get(2 * (size - 1));
+        this.minY = minY;
+        this.maxY = maxY;
+        this.temporaryFiles = temporaryFiles;
+    }
+
+    // Maps a file of little-endian x, y double pairs in place.
+    public static DataSeries readBinary(Path file) throws IOException {
+        return map(file, file, new ArrayList<>());
+    }
+
+    // Errors name source, the file the user chose, rather than the converted one being mapped. The temporary files
+    // are deleted if the series cannot be read, and otherwise belong to it.
+    private static DataSeries map(Path file, Path source, List<Path> temporaryFiles) throws IOException {
+        try {
+            return index(mapPoints(file, source), source, temporaryFiles);
+        } catch (IOException | RuntimeException e) {
+            delete(temporaryFiles);
+            throw e;
+        }
+    }
+
+    private static DoubleBuffer mapPoints(Path file, Path source) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes % (2 * Double.BYTES) != 0) {
+                throw new IOException("Not a whole number of x, y double pairs: " + source);
+            }
+            if (bytes / (2 * Double.BYTES) > MAX_POINTS) throw new IOException("Too many points: " + source);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+        }
+        return buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    // Reads x and y from the first two numeric fields of each line, separated by commas, semicolons, tabs or spaces;
+    // a line with a single field is plotted against its row number. A first line that does not parse is taken as a
+    // header. The points are written to a temporary binary file, which is then mapped like readBinary's input.
+    public static DataSeries readCsv(Path file) throws IOException {
+        List<Path> temporaryFiles = new ArrayList<>();
+        Path converted = temporaryFile(".bin", temporaryFiles);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(converted, StandardOpenOption.WRITE)) {
+            new CsvReader(in, out, file).read();
+        } catch (IOException | RuntimeException e) {
+            delete(temporaryFiles);
+            throw e;
+        }
+        return map(converted, file, temporaryFiles);
+    }
+
+    private static Path temporaryFile(String suffix, List<Path> temporaryFiles) throws IOException {
+        Path file = Files.createTempFile("data-series", suffix);
+        file.toFile().deleteOnExit();
+        temporaryFiles.add(file);
+        return file;
+    }
+
+    // Deletes the temporary files. The mappings stay valid until they are collected, so samples already taken are
+    // unaffected; where the platform will not delete a mapped file, it is left for deleteOnExit.
+    @Override
+    public void close() {
+        delete(temporaryFiles);
+    }
+
+    private static void delete(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Still registered with deleteOnExit.
+            }
+        }
+    }
+
+    public int size() { return size; }
+
+    public double x(int i) { return points.get(2 * i); }
+
+    public double y(int i) { return points.get(2 * i + 1); }
+
+    public double minX() { return minX; }
+
+    public double maxX() { return maxX; }
+
+    // NaN if every y is NaN.
+    public double minY() { return minY; }
+
+    public double maxY() { return maxY; }
+
+    // Replaces out with the points visible in the viewport, reduced to the lowest and highest y of each pixel column
+    // once there are more points than columns. Returns false if abandoned because cancelled became true.
+    public boolean decimate(Viewport viewport, SampleBuffer out, BooleanSupplier cancelled) {
+        out.clear();
+        // One point either side of the view keeps the lines running off its edges.
+        int first = Math.max(0, firstAtOrAfter(viewport.minX()) - 1);
+        int last = Math.min(size - 1, firstAtOrAfter(Math.nextUp(viewport.maxX())));
+        if (first > last) return true;
+
+        long count = last - first + 1L;
+        int level = -1;
+        while (level + 1 < levels.length && spans[level + 1] * viewport.pixelsWide() <= count) level++;
+        if (count <= (long) RAW_POINTS_PER_PIXEL * viewport.pixelsWide() || level < 0) {
+            for (int i = first; i <= last; i++) {
+                if ((i - first) % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) return false;
+                double y = y(i);
+                out.add(x(i), y, Double.isNaN(y) ? 0 : SampleBuffer.CONNECTED);
+            }
+            return true;
+        }
+        return decimateLevel(level, first, last, viewport, out, cancelled);
+    }
+
+    // Merges the level's buckets falling in each pixel column into one vertical span at the column's centre.
+    private boolean decimateLevel(int level, int first, int last, Viewport viewport, SampleBuffer out,
+                                  BooleanSupplier cancelled) {
+        Columns columns = new Columns(viewport, out);
+        int firstBucket = (int) (first / spans[level]);
+        int lastBucket = (int) (last / spans[level]);
+        for (int b = firstBucket; b <= lastBucket; b++) {
+            if ((b - firstBucket) % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) return false;
+            columns.bucket(level, b);
+        }
+        columns.flush();
+        return true;
+    }
+
+    // Accumulates the y range of the current pixel column. A bucket whose points spread over more than one column,
+    // where the data is sparse, is split into the buckets or points below it.
+    private final class Columns {
+        final Viewport viewport;
+        final SampleBuffer out;
+        final double columnWidth;
+        long column = Long.MIN_VALUE;
+        double low = Double.POSITIVE_INFINITY;
+        double high = Double.NEGATIVE_INFINITY;
+
+        Columns(Viewport viewport, SampleBuffer out) {
+            this.viewport = viewport;
+            this.out = out;
+            this.columnWidth = viewport.xPerPixel();
+        }
+
+        void bucket(int level, int b) {
+            long span = spans[level];
+            int first = (int) (b * span);
+            int last = (int) Math.min(size - 1, first + span - 1);
+            long firstColumn = columnOf(x(first));
+            if (firstColumn != columnOf(x(last))) {
+                for (long child = first / (span / BRANCHING); child * (span / BRANCHING) <= last; child++) {
+                    if (level == 0) {
+                        add(columnOf(x((int) child)), y((int) child), y((int) child));
+                    } else {
+                        bucket(level - 1, (int) child);
+                    }
+                }
+                return;
+            }
+            add(firstColumn, levels[level].get(2 * b), levels[level].get(2 * b + 1));
+        }
+
+        private void add(long pointColumn, double bucketLow, double bucketHigh) {
+            if (pointColumn != column) {
+                flush();
+                column = pointColumn;
+                low = Double.POSITIVE_INFINITY;
+                high = Double.NEGATIVE_INFINITY;
+            }
+            // NaN, for a gap in a raw point, leaves the range as it is.
+            if (bucketLow < low) low = bucketLow;
+            if (bucketHigh > high) high = bucketHigh;
+        }
+
+        private long columnOf(double x) {
+            return (long) Math.floor((x - viewport.minX()) / columnWidth);
+        }
+
+        // A column holding only NaN y values breaks the line.
+        void flush() {
+            if (column == Long.MIN_VALUE) return;
+            double x = viewport.minX() + (column + 0.5) * columnWidth;
+            if (low > high) {
+                out.add(x, Double.NaN, (byte) 0);
+                return;
+            }
+            out.add(x, low, SampleBuffer.CONNECTED);
+            if (high > low) out.add(x, high, SampleBuffer.CONNECTED);
+        }
+    }
+
+    // The index of the first point with x at or after the given value, or size if there is none.
+    private int firstAtOrAfter(double x) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (x(middle) < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Checks the points and builds the pyramid in one pass, into a temporary mapped file.
+    private static DataSeries index(DoubleBuffer points, Path source, List<Path> temporaryFiles) throws IOException {
+        int size = points.capacity() / 2;
+        if (size == 0) throw new IOException("No data points: " + source);
+
+        int levelCount = 0;
+        long bucketCount = 0;
+        for (long span = BRANCHING; span < size * (long) BRANCHING; span *= BRANCHING) {
+            levelCount++;
+            bucketCount += (size + span - 1) / span;
+        }
+        long[] spans = new long[levelCount];
+        long[] offsets = new long[levelCount];
+        long offset = 0;
+        for (int k = 0; k < levelCount; k++) {
+            spans[k] = k == 0 ? BRANCHING : spans[k - 1] * BRANCHING;
+            offsets[k] = offset;
+            offset += 2 * ((size + spans[k] - 1) / spans[k]);
+        }
+
+        DoubleBuffer pyramid = DoubleBuffer.allocate(0);
+        if (levelCount > 0) {
+            Path file = temporaryFile(".pyramid", temporaryFiles);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                pyramid = channel.map(FileChannel.MapMode.READ_WRITE, 0, bucketCount * 2 * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+        }
+
+        double[] lows = new double[levelCount];
+        double[] highs = new double[levelCount];
+        Arrays.fill(lows, Double.POSITIVE_INFINITY);
+        Arrays.fill(highs, Double.NEGATIVE_INFINITY);
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double previousX = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < size; i++) {
+            double x = points.get(2 * i);
+            double y = points.get(2 * i + 1);
+            if (!Double.isFinite(x)) throw new IOException("Point " + (i + 1) + " has no finite x: " + source);
+            if (x < previousX) throw new IOException("x decreases at point " + (i + 1) + ": " + source);
+            previousX = x;
+            if (!Double.isNaN(y)) {
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                if (levelCount > 0) {
+                    lows[0] = Math.min(lows[0], y);
+                    highs[0] = Math.max(highs[0], y);
+                }
+            }
+            // Closes every bucket that ends at this point, passing its range up to the level above.
+            for (int k = 0; k < levelCount && ((i + 1) % spans[k] == 0 || i == size - 1); k++) {
+                int bucket = (int) (offsets[k] + 2 * (i / spans[k]));
+                pyramid.put(bucket, lows[k]);
+                pyramid.put(bucket + 1, highs[k]);
+                if (k + 1 < levelCount) {
+                    lows[k + 1] = Math.min(lows[k + 1], lows[k]);
+                    highs[k + 1] = Math.max(highs[k + 1], highs[k]);
+                }
+                lows[k] = Double.POSITIVE_INFINITY;
+                highs[k] = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        DoubleBuffer[] levels = new DoubleBuffer[levelCount];
+        for (int k = 0; k < levelCount; k++) {
+            int length = (int) (2 * ((size + spans[k] - 1) / spans[k]));
+            levels[k] = pyramid.slice((int) offsets[k], length);
+        }
+        return new DataSeries(points, size, levels, spans,
+                minY <= maxY ? minY : Double.NaN, minY <= maxY ? maxY : Double.NaN, temporaryFiles);
+    }
+
+    // Streams a CSV file through a memory map, writing little-endian x, y pairs in chunks.
+    private static final class CsvReader {
+        private final FileChannel in;
+        private final FileChannel out;
+        private final ByteBuffer chunk = ByteBuffer.allocateDirect((int) CSV_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final byte[] scratch = new byte[64];
+        private final double[] fields = new double[2];
+        private final Path file;
+        private MappedByteBuffer text;
+        private long points;
+
+        CsvReader(FileChannel in, FileChannel out, Path file) {
+            this.in = in;
+            this.out = out;
+            this.file = file;
+        }
+
+        void read() throws IOException {
+            if (in.size() > Integer.MAX_VALUE) throw new IOException("CSV file too large to map: " + file);
+            text = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            int length = text.limit();
+            int line = 0;
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && text.get(end) != '\n') end++;
+                line++;
+                int fieldCount = parseLine(start, end);
+                if (fieldCount < 0) {
+                    if (line != 1) throw new IOException("Line " + line + " is not numeric: " + file);
+                } else if (fieldCount == 1) {
+                    write(points, fields[0]);
+                } else if (fieldCount == 2) {
+                    write(fields[0], fields[1]);
+                }
+                start = end + 1;
+            }
+            chunk.flip();
+            while (chunk.hasRemaining()) out.write(chunk);
+            if (points == 0) throw new IOException("No data points: " + file);
+        }
+
+        private void write(double x, double y) throws IOException {
+            if (++points > MAX_POINTS) throw new IOException("Too many points: " + file);
+            if (chunk.remaining() < 2 * Double.BYTES) {
+                chunk.flip();
+                while (chunk.hasRemaining()) out.write(chunk);
+                chunk.clear();
+            }
+            chunk.putDouble(x).putDouble(y);
+        }
+
+        // Parses up to two fields into fields; returns how many were found, or -1 if one is not a number.
+        private int parseLine(int start, int end) {
+            int count = 0;
+            int position = start;
+            while (count < 2) {
+                while (position < end && isSeparator(text.get(position))) position++;
+                if (position >= end) break;
+                int fieldEnd = position;
+                while (fieldEnd < end && !isSeparator(text.get(fieldEnd))) fieldEnd++;
+                double value = parseNumber(position, fieldEnd);
+                if (Double.isNaN(value) && !isNaN(position, fieldEnd)) return -1;
+                fields[count++] = value;
+                position = fieldEnd;
+            }
+            return count;
+        }
+
+        private static boolean isSeparator(byte b) {
+            return b == ',' || b == ';' || b == '\t' || b == ' ' || b == '\r';
+        }
+
+        // Plain decimals of up to 18 digits with a small exponent are converted exactly with one multiplication or
+        // division; anything else goes through Double.parseDouble. Returns NaN if the field is not a number.
+        private double parseNumber(int start, int end) {
+            int position = start;
+            boolean negative = false;
+            if (position < end && (text.get(position) == '-' || text.get(position) == '+')) {
+                negative = text.get(position) == '-';
+                position++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean point = false;
+            boolean anyDigit = false;
+            for (; position < end; position++) {
+                byte b = text.get(position);
+                if (b >= '0' && b <= '9') {
+                    if (digits == 18) return parseSlowly(start, end);
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    if (point) exponent--;
+                    anyDigit = true;
+                } else if (b == '.' && !point) {
+                    point = true;
+                } else {
+                    break;
+                }
+            }
+            if (!anyDigit) return parseSlowly(start, end);
+            if (position < end) {
+                byte b = text.get(position);
+                if (b != 'e' && b != 'E') return parseSlowly(start, end);
+                int written = 0;
+                boolean negativeExponent = false;
+                position++;
+                if (position < end && (text.get(position) == '-' || text.get(position) == '+')) {
+                    negativeExponent = text.get(position) == '-';
+                    position++;
+                }
+                int value = 0;
+                for (; position < end; position++) {
+                    b = text.get(position);
+                    if (b < '0' || b > '9' || ++written > 3) return parseSlowly(start, end);
+                    value = value * 10 + (b - '0');
+                }
+                if (written == 0) return parseSlowly(start, end);
+                exponent += negativeExponent ? -value : value;
+            }
+            if (exponent < -22 || exponent > 22 || mantissa >= 1L << 53) return parseSlowly(start, end);
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+
+        private double parseSlowly(int start, int end) {
+            if (end - start > scratch.length) return Double.NaN;
+            for (int i = start; i < end; i++) {
+                scratch[i - start] = text.get(i);
+            }
+            try {
+                return Double.parseDouble(new String(scratch, 0, end - start, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private boolean isNaN(int start, int end) {
+            if (end - start != 3) return false;
+            return (text.get(start) | 0x20) == 'n' && (text.get(start + 1) | 0x20) == 'a'
+                    && (text.get(start + 2) | 0x20) == 'n';
+        }
+    }
+}
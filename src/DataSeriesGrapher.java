@@ -0,0 +1,45 @@
+import java.nio.file.Path;
+
+// Plots a measured DataSeries on the same axes as the equations. Like ImplicitGrapher it has no getPoint sequence:
+// its samples come from the series' min/max pyramid for the viewport, so millions of points never pass through
+// Coordinate objects or the heap.
+public class DataSeriesGrapher extends XYGrapher {
+    private final DataSeries series;
+
+    public DataSeriesGrapher(DataSeries series) {
+        this.series = series;
+    }
+
+    // CSV unless the file name ends in .bin, which is read as raw little-endian x, y doubles.
+    public static DataSeriesGrapher read(Path file) throws java.io.IOException {
+        String name = file.getFileName().toString();
+        DataSeries series = name.toLowerCase().endsWith(".bin") ? DataSeries.readBinary(file) : DataSeries.readCsv(file);
+        DataSeriesGrapher grapher = new DataSeriesGrapher(series);
+        grapher.setLabel(name);
+        return grapher;
+    }
+
+    public DataSeries getSeries() {
+        return series;
+    }
+
+    @Override
+    public Coordinate xyStart() {
+        return new Coordinate(series.minX(), Double.isNaN(series.minY()) ? 0 : series.minY());
+    }
+
+    @Override
+    public double xRange() {
+        return series.maxX() - series.minX();
+    }
+
+    @Override
+    public double yRange() {
+        return Double.isNaN(series.minY()) ? 0 : series.maxY() - series.minY();
+    }
+
+    @Override
+    public Coordinate getPoint(int pointNum) {
+        return null;
+    }
+}
@@ -0,0 +1,5 @@
+// A curve that can also report its velocity, from the same evaluation that finds the point.
+public interface DifferentiableCurve extends Curve {
+    // Fills point[0..3] with x(t), y(t), x'(t) and y'(t).
+    void evaluate(double t, double[] point);
+}
@@ -11,4 +11,30 @@ public abstract class DiscontinuousFunctionGrapher extends FunctionGrapher {
 
         return super.getPoint(pointNum);
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getPoints(int firstPoint, double[] xs, double[] ys, byte[] flags, int offset, int count) {
+        double start = xyStart().getX();
+        double end = start + xRange();
+        double increment = xIncrement();
+
+        for (int i = 0; i < count; i++) {
+            double x = ((double) (firstPoint + i)) * increment + start;
+            if (x > end) return i;
+            xs[offset + i] = x;
+            if (exclude(x)) {
+                ys[offset + i] = 0;
+                flags[offset + i] = 0;
+            } else {
+                ys[offset + i] = yValue(x);
+                flags[offset + i] = SampleBuffer.CONNECTED;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    protected double curveValue(double xValue) {
+        return exclude(xValue) ? Double.NaN : yValue(xValue);
+    }
+}
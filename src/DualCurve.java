@@ -0,0 +1,41 @@
+import java.util.function.DoubleUnaryOperator;
+
+// The exact curve of parsed x(t) and y(t) expressions, with velocities from forward-mode differentiation. Points
+// alone are evaluated without the derivative.
+final class DualCurve implements DifferentiableCurve {
+    private final DoubleUnaryOperator xValue;
+    private final DoubleUnaryOperator yValue;
+    private final DualFunction x;
+    private final DualFunction y;
+
+    // A null x expression means x(t) = t, as for function graphers.
+    DualCurve(Expression x, Expression y) {
+        this.xValue = x != null ? x.compile() : t -> t;
+        this.yValue = y.compile();
+        this.x = x != null ? x.compileDual() : (t, slope) -> {
+            slope[0] = 1;
+            return t;
+        };
+        this.y = y.compileDual();
+    }
+
+    @Override
+    public double x(double t) {
+        return xValue.applyAsDouble(t);
+    }
+
+    @Override
+    public double y(double t) {
+        return yValue.applyAsDouble(t);
+    }
+
+    @Override
+    public void evaluate(double t, double[] point) {
+        double xValue = x.apply(t, point);
+        double dx = point[0];
+        point[1] = y.apply(t, point);
+        point[3] = point[0];
+        point[0] = xValue;
+        point[2] = dx;
+    }
+}
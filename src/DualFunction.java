@@ -0,0 +1,5 @@
+// A function evaluated in forward-mode automatic differentiation: each call carries the dual number (f(t), f'(t))
+// through the expression, returning f(t) and leaving the exact derivative in slope[0].
+public interface DualFunction {
+    double apply(double t, double[] slope);
+}
@@ -0,0 +1,33 @@
+import java.awt.*;
+
+// One plotted curve's difference between two sidebar updates. Equations are identified by a stable id so an edited
+// equation keeps its place in the drawing order.
+public class EquationChange {
+    public enum Kind { ADDED, REMOVED, CHANGED, RECOLORED }
+
+    private final Kind kind;
+    private final int id;
+    private final XYGrapher grapher;
+    private final Color color;
+
+    public EquationChange(Kind kind, int id, XYGrapher grapher, Color color) {
+        this.kind = kind;
+        this.id = id;
+        this.grapher = grapher;
+        this.color = color;
+    }
+
+    public Kind getKind() { return kind; }
+
+    public int getId() { return id; }
+
+    // Null for REMOVED.
+    public XYGrapher getGrapher() { return grapher; }
+
+    public Color getColor() { return color; }
+
+    @Override
+    public String toString() {
+        return kind + " #" + id + (grapher != null ? " " + grapher.getLabel() : "");
+    }
+}
@@ -0,0 +1,58 @@
+import java.awt.*;
+
+// One row of the sidebar: the text as typed, how it is drawn, and the grapher it last parsed to. Rows hold no Swing
+// components of their own; the sidebar's table paints and edits them with a single shared set.
+class EquationEntry {
+    private final int id;
+    private String text = "";
+    private XYGrapher grapher;
+    private boolean isGraphed = true;
+    private boolean isValidEquation = false;
+    private Color color = Color.BLACK;
+
+    EquationEntry(int id) {
+        this.id = id;
+    }
+
+    public int getId() { return id; }
+
+    public String getText() { return text; }
+
+    // Parses the new text. Returns false if it was already the current text, in which case nothing changed.
+    public boolean setText(String text) {
+        if (text.equals(this.text)) return false;
+        this.text = text;
+
+        try {
+            grapher = EquationParser.parse(text);
+            isValidEquation = true;
+        } catch (Exception e) {
+            grapher = null;
+            isValidEquation = false;
+        }
+        return true;
+    }
+
+    public Color getColor() { return color; }
+
+    public void setColor(Color color) { this.color = color; }
+
+    public boolean isGraphed() { return isGraphed; }
+
+    public void setGraphed(boolean graphed) { isGraphed = graphed; }
+
+    public boolean isValidEquation() { return isValidEquation; }
+
+    public XYGrapher getGrapher() {
+        if (isGraphed && isValidEquation && grapher != null) {
+            grapher.setGraphColor(color);
+            return grapher;
+        }
+        return null;
+    }
+
+    // Null if the equation does not parse.
+    public String getCanonicalForm() {
+        return grapher != null ? grapher.getCanonicalForm() : null;
+    }
+}
@@ -1,5 +1,6 @@
-import java.util.ArrayList;
+import java.util.List;
 
 public interface EquationListener {
-    void onEquationsUpdated(ArrayList<XYGrapher> updatedGraphers);
-}
\ No newline at end of file
+    // Called on the event dispatch thread with every curve that changed since the last call, at most once per event.
+    void onEquationsChanged(List<EquationChange> changes);
+}
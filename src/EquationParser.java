@@ -0,0 +1,415 @@
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+public class EquationParser {
+    // Polynomials up to this degree keep the Horner/sparse evaluation of PolynomialGrapher.
+    private static final int MAX_POLYNOMIAL_DEGREE = 1024;
+
+    private EquationParser() {
+    }
+
+    public static XYGrapher parse(String equation) throws Exception {
+        long start = System.nanoTime();
+        String cleanedEquation = stripWhitespace(equation);
+        String label = null;
+        try {
+            XYGrapher grapher;
+            if (cleanedEquation.indexOf(';') >= 0 && cleanedEquation.indexOf('<') >= 0) {
+                grapher = parseParametricEquation(cleanedEquation);
+            } else {
+                grapher = parseFunctionEquation(cleanedEquation);
+            }
+            grapher.setLabel(cleanedEquation);
+            label = cleanedEquation;
+            return grapher;
+        } finally {
+            RenderMetrics.get().recordParse(label, System.nanoTime() - start);
+        }
+    }
+
+    private static XYGrapher parseFunctionEquation(String cleanedEquation) throws Exception {
+        int equals = cleanedEquation.indexOf('=');
+        if (equals < 0 || cleanedEquation.indexOf('=', equals + 1) >= 0) {
+            throw new Exception("Invalid equation format. Expected y=f(x) or f(x,y)=g(x,y).");
+        }
+        String leftSide = cleanedEquation.substring(0, equals);
+        String rightSide = cleanedEquation.substring(equals + 1);
+        if (leftSide.isEmpty() || rightSide.isEmpty()) {
+            throw new Exception("Invalid equation format. Equation cannot be empty.");
+        }
+
+        Expression right = ExpressionParser.parse(rightSide, "x", "y");
+        if (leftSide.equals("y") && !dependsOnY(right)) {
+            return explicitFunction(right);
+        }
+        if (leftSide.equals("y'")) {
+            if (dependsOnY(right)) throw new Exception("A derivative y'=f(x) cannot depend on y.");
+            return derivativeFunction(right);
+        }
+        Expression left = ExpressionParser.parse(leftSide, "x", "y");
+        return implicitFunction(Expression.subtract(left, right));
+    }
+
+    private static XYGrapher implicitFunction(Expression difference) {
+        DoubleBinaryOperator evaluator = difference.compileXY();
+        ImplicitGrapher implicit = new ImplicitGrapher() {
+            @Override
+            public double value(double x, double y) {
+                return evaluator.applyAsDouble(x, y);
+            }
+
+            @Override
+            public Coordinate xyStart() {
+                return new Coordinate(-10, -10);
+            }
+
+            @Override
+            public double xRange() {
+                return 20;
+            }
+
+            @Override
+            public double yRange() {
+                return 20;
+            }
+        };
+        implicit.setCanonicalForm(difference + "=0");
+        return implicit;
+    }
+
+    private static boolean dependsOnY(Expression expression) {
+        if (expression instanceof Expression.Variable) return ((Expression.Variable) expression).index == 1;
+        if (expression instanceof Expression.Negate) return dependsOnY(((Expression.Negate) expression).operand);
+        if (expression instanceof Expression.Call) return dependsOnY(((Expression.Call) expression).argument);
+        if (expression instanceof Expression.Binary) {
+            Expression.Binary binary = (Expression.Binary) expression;
+            return dependsOnY(binary.left) || dependsOnY(binary.right);
+        }
+        return false;
+    }
+
+    private static XYGrapher explicitFunction(Expression expression) {
+        double[] coefficients = polynomialCoefficients(expression);
+        if (coefficients != null) {
+            DualCurve dual = new DualCurve(null, expression);
+            PolynomialGrapher polynomial = new PolynomialGrapher() {
+                @Override
+                public double[] coefficients() {
+                    return coefficients;
+                }
+
+                @Override
+                public UnaryOperator<Interval> intervalFunction() {
+                    return expression::evaluate;
+                }
+
+                @Override
+                public DifferentiableCurve differentiableCurve() {
+                    return dual;
+                }
+
+                @Override
+                public Coordinate xyStart() {
+                    return new Coordinate(-10, -10);
+                }
+
+                @Override
+                public double xIncrement() {
+                    return 0.1;
+                }
+
+                @Override
+                public double xRange() {
+                    return 20;
+                }
+
+                @Override
+                public double yRange() {
+                    return 20;
+                }
+            };
+            polynomial.setCanonicalForm("y=" + Arrays.toString(coefficients));
+            return polynomial;
+        }
+
+        DoubleUnaryOperator evaluator = expression.compileHot(0);
+        TieredCurve tiers = new TieredCurve(null, expression);
+        DualCurve dual = new DualCurve(null, expression);
+        FunctionGrapher function = new FunctionGrapher() {
+            @Override
+            public double yValue(double xValue) {
+                return evaluator.applyAsDouble(xValue);
+            }
+
+            @Override
+            public Curve curve(double xTolerance, double yTolerance) {
+                return tiers.curve(xTolerance, yTolerance);
+            }
+
+            @Override
+            public UnaryOperator<Interval> intervalFunction() {
+                return expression::evaluate;
+            }
+
+            @Override
+            public DifferentiableCurve differentiableCurve() {
+                return dual;
+            }
+
+            @Override
+            public Coordinate xyStart() {
+                return new Coordinate(-10, -10);
+            }
+
+            @Override
+            public double xIncrement() {
+                return 0.1;
+            }
+
+            @Override
+            public double xRange() {
+                return 20;
+            }
+
+            @Override
+            public double yRange() {
+                return 20;
+            }
+        };
+        function.setCanonicalForm("y=" + expression);
+        return function;
+    }
+
+    // Graphs f'(x) by carrying dual numbers through f, so the derivative is exact rather than a difference quotient.
+    // Render threads sample concurrently, so each has its own slot for the slope.
+    private static XYGrapher derivativeFunction(Expression expression) {
+        DualFunction dual = expression.compileDual();
+        ThreadLocal<double[]> slopes = ThreadLocal.withInitial(() -> new double[1]);
+        FunctionGrapher derivative = new FunctionGrapher() {
+            @Override
+            public double yValue(double xValue) {
+                double[] slope = slopes.get();
+                dual.apply(xValue, slope);
+                return slope[0];
+            }
+
+            @Override
+            public void yValues(double[] xs, double[] out, int from, int to) {
+                double[] slope = slopes.get();
+                for (int i = from; i < to; i++) {
+                    dual.apply(xs[i], slope);
+                    out[i] = slope[0];
+                }
+            }
+
+            @Override
+            public Coordinate xyStart() {
+                return new Coordinate(-10, -10);
+            }
+
+            @Override
+            public double xIncrement() {
+                return 0.1;
+            }
+
+            @Override
+            public double xRange() {
+                return 20;
+            }
+
+            @Override
+            public double yRange() {
+                return 20;
+            }
+        };
+        derivative.setCanonicalForm("y'=" + expression);
+        return derivative;
+    }
+
+    // Returns the coefficients, lowest power first, if the expression is written as a sum of c*x^n terms; else null.
+    // Products of sums and powers of them, such as (x-3)^30, are left to the expression tree: expanded into monomials
+    // they cancel catastrophically near their roots. Scaling a sum by a constant is kept, as it loses nothing.
+    private static double[] polynomialCoefficients(Expression expression) {
+        if (expression instanceof Expression.Constant) {
+            return new double[]{((Expression.Constant) expression).value};
+        }
+        if (expression instanceof Expression.Variable) {
+            return new double[]{0, 1};
+        }
+        if (expression instanceof Expression.Negate) {
+            double[] operand = polynomialCoefficients(((Expression.Negate) expression).operand);
+            if (operand == null) return null;
+            for (int i = 0; i < operand.length; i++) operand[i] = -operand[i];
+            return operand;
+        }
+        if (!(expression instanceof Expression.Binary)) return null;
+
+        Expression.Binary binary = (Expression.Binary) expression;
+        double[] left = polynomialCoefficients(binary.left);
+        if (left == null) return null;
+        switch (binary.operator) {
+            case '+':
+            case '-': {
+                double[] right = polynomialCoefficients(binary.right);
+                if (right == null) return null;
+                double sign = binary.operator == '+' ? 1 : -1;
+                double[] sum = new double[Math.max(left.length, right.length)];
+                for (int i = 0; i < left.length; i++) sum[i] = left[i];
+                for (int i = 0; i < right.length; i++) sum[i] += sign * right[i];
+                return sum;
+            }
+            case '*': {
+                double[] right = polynomialCoefficients(binary.right);
+                if (right == null || left.length + right.length - 2 > MAX_POLYNOMIAL_DEGREE) return null;
+                if (left.length > 1 && right.length > 1 && !(isMonomial(left) && isMonomial(right))) return null;
+                return multiply(left, right);
+            }
+            case '/': {
+                if (!binary.right.isConstant()) return null;
+                double divisor = binary.right.evaluate(0);
+                for (int i = 0; i < left.length; i++) left[i] /= divisor;
+                return left;
+            }
+            default: {
+                if (!binary.right.isConstant()) return null;
+                double exponent = binary.right.evaluate(0);
+                if (exponent < 0 || exponent != Math.rint(exponent) || !isMonomial(left)
+                        || (left.length - 1) * exponent > MAX_POLYNOMIAL_DEGREE) {
+                    return null;
+                }
+                double[] result = {1};
+                double[] square = left;
+                for (long n = (long) exponent; n > 0; n >>= 1) {
+                    if ((n & 1) != 0) result = multiply(result, square);
+                    if (n > 1) square = multiply(square, square);
+                }
+                return result;
+            }
+        }
+    }
+
+    // True for c*x^n: at most one non-zero coefficient.
+    private static boolean isMonomial(double[] coefficients) {
+        int nonZero = 0;
+        for (double c : coefficients) {
+            if (c != 0) nonZero++;
+        }
+        return nonZero <= 1;
+    }
+
+    private static double[] multiply(double[] a, double[] b) {
+        double[] product = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0) continue;
+            for (int j = 0; j < b.length; j++) {
+                product[i + j] += a[i] * b[j];
+            }
+        }
+        return product;
+    }
+
+    private static XYGrapher parseParametricEquation(String cleanedEquation) throws Exception {
+        int firstSeparator = cleanedEquation.indexOf(';');
+        int secondSeparator = cleanedEquation.indexOf(';', firstSeparator + 1);
+        if (secondSeparator < 0 || cleanedEquation.indexOf(';', secondSeparator + 1) >= 0) {
+            throw new Exception("Invalid parametric equation format.");
+        }
+        String xPart = cleanedEquation.substring(0, firstSeparator);
+        String yPart = cleanedEquation.substring(firstSeparator + 1, secondSeparator);
+        String tRangeString = cleanedEquation.substring(secondSeparator + 1);
+        if (!xPart.startsWith("x=") || !yPart.startsWith("y=")) {
+            throw new Exception("Invalid parametric equation format. Expected x=f(t);y=g(t);tStart<t<tEnd.");
+        }
+
+        int firstLess = tRangeString.indexOf('<');
+        int lastLess = tRangeString.lastIndexOf('<');
+        if (firstLess == lastLess || !tRangeString.substring(firstLess + 1, lastLess).equals("t")) {
+            throw new Exception("Invalid t range format. Expected format: tStart<t<tEnd.");
+        }
+        double tStart = evaluateConstant(tRangeString.substring(0, firstLess));
+        double tEnd = evaluateConstant(tRangeString.substring(lastLess + 1));
+        if (!(Double.isFinite(tStart) && Double.isFinite(tEnd) && tStart < tEnd)) {
+            throw new Exception("Invalid t range. Expected finite tStart and tEnd with tStart<tEnd.");
+        }
+
+        Expression xExpression = ExpressionParser.parse(xPart.substring(2), "t");
+        Expression yExpression = ExpressionParser.parse(yPart.substring(2), "t");
+        DoubleUnaryOperator xEvaluator = xExpression.compileHot(0);
+        DoubleUnaryOperator yEvaluator = yExpression.compileHot(0);
+        TieredCurve tiers = new TieredCurve(xExpression, yExpression);
+        DualCurve dual = new DualCurve(xExpression, yExpression);
+
+        ParametricGrapher parametric = new ParametricGrapher() {
+            @Override
+            public double tInterval() {
+                return 0.1;
+            }
+
+            @Override
+            public double tStart() {
+                return tStart;
+            }
+
+            @Override
+            public double tEnd() {
+                return tEnd;
+            }
+
+            @Override
+            public double xValue(double t) {
+                return xEvaluator.applyAsDouble(t);
+            }
+
+            @Override
+            public double yValue(double t) {
+                return yEvaluator.applyAsDouble(t);
+            }
+
+            @Override
+            public Curve curve(double xTolerance, double yTolerance) {
+                return tiers.curve(xTolerance, yTolerance);
+            }
+
+            @Override
+            public DifferentiableCurve differentiableCurve() {
+                return dual;
+            }
+
+            @Override
+            public Coordinate xyStart() {
+                return new Coordinate(xValue(tStart), yValue(tStart));
+            }
+
+            @Override
+            public double xRange() {
+                return tEnd - tStart;
+            }
+
+            @Override
+            public double yRange() {
+                return tEnd - tStart;
+            }
+        };
+        parametric.setCanonicalForm("x=" + xExpression + ";y=" + yExpression + ";" + tStart + "<t<" + tEnd);
+        return parametric;
+    }
+
+    private static double evaluateConstant(String expression) {
+        return ExpressionParser.parse(expression, null).evaluate(0);
+    }
+
+    private static String stripWhitespace(String equation) {
+        StringBuilder cleaned = null;
+        for (int i = 0; i < equation.length(); i++) {
+            char c = equation.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (cleaned == null) cleaned = new StringBuilder(equation.length()).append(equation, 0, i);
+            } else if (cleaned != null) {
+                cleaned.append(c);
+            }
+        }
+        return cleaned == null ? equation : cleaned.toString();
+    }
+}
@@ -0,0 +1,565 @@
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+public abstract class Expression {
+    public abstract double evaluate(double variable);
+
+    public DoubleUnaryOperator compile() {
+        return compile(0);
+    }
+
+    // Like compile, but the result swaps itself for generated bytecode once the expression has proven hot, which is
+    // what long-lived evaluators such as graphers' should use.
+    public DoubleUnaryOperator compileHot(double errorBudget) {
+        return new HotFunction(this, errorBudget);
+    }
+
+    // Compiles with any registered approximations whose error, carried up through the tree, keeps the result within
+    // errorBudget of the exact value. Approximations are only used below additions and constant scalings, where
+    // the carried error is easy to bound; everything else is compiled exactly.
+    public abstract DoubleUnaryOperator compile(double errorBudget);
+
+    // Compiles value and exact derivative together, for the first variable. Functions without a registered derivative
+    // have a derivative of NaN.
+    public abstract DualFunction compileDual();
+
+    // Two-variable forms for implicit equations: variables with index 0 read x and index 1 read y.
+    public abstract double evaluate(double x, double y);
+
+    public abstract DoubleBinaryOperator compileXY();
+
+    // Encloses every value the expression takes as its variable ranges over the interval. Calls to functions without
+    // a registered interval extension are unbounded.
+    public abstract Interval evaluate(Interval variable);
+
+    public boolean isConstant() {
+        return false;
+    }
+
+    public static Expression constant(double value) {
+        return new Constant(value);
+    }
+
+    public static Expression variable(String name) {
+        return new Variable(name, 0);
+    }
+
+    public static Expression variable(String name, int index) {
+        return new Variable(name, index);
+    }
+
+    public static Expression negate(Expression operand) {
+        if (operand.isConstant()) return constant(-operand.evaluate(0));
+        return new Negate(operand);
+    }
+
+    public static Expression add(Expression left, Expression right) {
+        return binary('+', left, right);
+    }
+
+    public static Expression subtract(Expression left, Expression right) {
+        return binary('-', left, right);
+    }
+
+    public static Expression multiply(Expression left, Expression right) {
+        return binary('*', left, right);
+    }
+
+    public static Expression divide(Expression left, Expression right) {
+        return binary('/', left, right);
+    }
+
+    public static Expression power(Expression base, Expression exponent) {
+        return binary('^', base, exponent);
+    }
+
+    public static Expression call(String name, DoubleUnaryOperator function, Expression argument) {
+        if (argument.isConstant()) return constant(function.applyAsDouble(argument.evaluate(0)));
+        return new Call(name, function, argument);
+    }
+
+    private static Expression binary(char operator, Expression left, Expression right) {
+        Binary binary = new Binary(operator, left, right);
+        if (left.isConstant() && right.isConstant()) return constant(binary.evaluate(0));
+        return binary;
+    }
+
+    static final class Constant extends Expression {
+        final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(double variable) {
+            return value;
+        }
+
+        @Override
+        public DoubleUnaryOperator compile(double errorBudget) {
+            double v = value;
+            return t -> v;
+        }
+
+        @Override
+        public DualFunction compileDual() {
+            double v = value;
+            return (t, slope) -> {
+                slope[0] = 0;
+                return v;
+            };
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return value;
+        }
+
+        @Override
+        public DoubleBinaryOperator compileXY() {
+            double v = value;
+            return (x, y) -> v;
+        }
+
+        @Override
+        public Interval evaluate(Interval variable) {
+            return Interval.point(value);
+        }
+
+        @Override
+        public boolean isConstant() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return Double.toString(value);
+        }
+    }
+
+    static final class Variable extends Expression {
+        final String name;
+        final int index;
+
+        Variable(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        public double evaluate(double variable) {
+            return variable;
+        }
+
+        @Override
+        public DoubleUnaryOperator compile(double errorBudget) {
+            return t -> t;
+        }
+
+        @Override
+        public DualFunction compileDual() {
+            return (t, slope) -> {
+                slope[0] = 1;
+                return t;
+            };
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return index == 0 ? x : y;
+        }
+
+        @Override
+        public DoubleBinaryOperator compileXY() {
+            if (index == 0) return (x, y) -> x;
+            return (x, y) -> y;
+        }
+
+        @Override
+        public Interval evaluate(Interval variable) {
+            return variable;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static final class Negate extends Expression {
+        final Expression operand;
+
+        Negate(Expression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public double evaluate(double variable) {
+            return -operand.evaluate(variable);
+        }
+
+        @Override
+        public DoubleUnaryOperator compile(double errorBudget) {
+            DoubleUnaryOperator o = operand.compile(errorBudget);
+            return t -> -o.applyAsDouble(t);
+        }
+
+        @Override
+        public DualFunction compileDual() {
+            DualFunction o = operand.compileDual();
+            return (t, slope) -> {
+                double v = o.apply(t, slope);
+                slope[0] = -slope[0];
+                return -v;
+            };
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return -operand.evaluate(x, y);
+        }
+
+        @Override
+        public DoubleBinaryOperator compileXY() {
+            DoubleBinaryOperator o = operand.compileXY();
+            return (x, y) -> -o.applyAsDouble(x, y);
+        }
+
+        @Override
+        public Interval evaluate(Interval variable) {
+            return operand.evaluate(variable).negate();
+        }
+
+        @Override
+        public String toString() {
+            return "(-" + operand + ")";
+        }
+    }
+
+    static final class Binary extends Expression {
+        final char operator;
+        final Expression left;
+        final Expression right;
+
+        Binary(char operator, Expression left, Expression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(double variable) {
+            return apply(left.evaluate(variable), right.evaluate(variable));
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return apply(left.evaluate(x, y), right.evaluate(x, y));
+        }
+
+        private double apply(double l, double r) {
+            switch (operator) {
+                case '+': return l + r;
+                case '-': return l - r;
+                case '*': return l * r;
+                case '/': return l / r;
+                default: return Math.pow(l, r);
+            }
+        }
+
+        // How much of the error budget each operand may spend on approximations.
+        double leftBudget(double errorBudget) {
+            if (operator == '+' || operator == '-') return errorBudget / 2;
+            if (operator == '*' && right.isConstant() && !left.isConstant()) {
+                return errorBudget / Math.abs(right.evaluate(0));
+            }
+            if (operator == '/' && right.isConstant()) return errorBudget * Math.abs(right.evaluate(0));
+            return 0;
+        }
+
+        double rightBudget(double errorBudget) {
+            if (operator == '+' || operator == '-') return errorBudget / 2;
+            if (operator == '*' && left.isConstant()) return errorBudget / Math.abs(left.evaluate(0));
+            return 0;
+        }
+
+        @Override
+        public DoubleUnaryOperator compile(double errorBudget) {
+            DoubleUnaryOperator l = left.compile(leftBudget(errorBudget));
+            DoubleUnaryOperator r = right.compile(rightBudget(errorBudget));
+
+            // Constant operands are captured as plain doubles so the common a*f(b*t) shape costs no extra calls.
+            if (left.isConstant()) {
+                double c = left.evaluate(0);
+                switch (operator) {
+                    case '+': return t -> c + r.applyAsDouble(t);
+                    case '-': return t -> c - r.applyAsDouble(t);
+                    case '*': return t -> c * r.applyAsDouble(t);
+                    case '/': return t -> c / r.applyAsDouble(t);
+                    default: return t -> Math.pow(c, r.applyAsDouble(t));
+                }
+            }
+            if (right.isConstant()) {
+                double c = right.evaluate(0);
+                switch (operator) {
+                    case '+': return t -> l.applyAsDouble(t) + c;
+                    case '-': return t -> l.applyAsDouble(t) - c;
+                    case '*': return t -> l.applyAsDouble(t) * c;
+                    case '/': return t -> l.applyAsDouble(t) / c;
+                    default:
+                        if (c == 2) {
+                            return t -> {
+                                double v = l.applyAsDouble(t);
+                                return v * v;
+                            };
+                        }
+                        return t -> Math.pow(l.applyAsDouble(t), c);
+                }
+            }
+            switch (operator) {
+                case '+': return t -> l.applyAsDouble(t) + r.applyAsDouble(t);
+                case '-': return t -> l.applyAsDouble(t) - r.applyAsDouble(t);
+                case '*': return t -> l.applyAsDouble(t) * r.applyAsDouble(t);
+                case '/': return t -> l.applyAsDouble(t) / r.applyAsDouble(t);
+                default: return t -> Math.pow(l.applyAsDouble(t), r.applyAsDouble(t));
+            }
+        }
+
+        // Each operand's derivative is read out of slope before the other operand overwrites it.
+        @Override
+        public DualFunction compileDual() {
+            DualFunction l = left.compileDual();
+            DualFunction r = right.compileDual();
+
+            if (left.isConstant()) {
+                double c = left.evaluate(0);
+                switch (operator) {
+                    case '+': return (t, slope) -> c + r.apply(t, slope);
+                    case '-': return (t, slope) -> {
+                        double v = r.apply(t, slope);
+                        slope[0] = -slope[0];
+                        return c - v;
+                    };
+                    case '*': return (t, slope) -> {
+                        double v = r.apply(t, slope);
+                        slope[0] *= c;
+                        return c * v;
+                    };
+                    case '/': return (t, slope) -> {
+                        double v = r.apply(t, slope);
+                        double q = c / v;
+                        slope[0] *= -q / v;
+                        return q;
+                    };
+                    default: return (t, slope) -> {
+                        double p = Math.pow(c, r.apply(t, slope));
+                        slope[0] *= p * Math.log(c);
+                        return p;
+                    };
+                }
+            }
+            if (right.isConstant()) {
+                double c = right.evaluate(0);
+                switch (operator) {
+                    case '+': return (t, slope) -> l.apply(t, slope) + c;
+                    case '-': return (t, slope) -> l.apply(t, slope) - c;
+                    case '*': return (t, slope) -> {
+                        double v = l.apply(t, slope);
+                        slope[0] *= c;
+                        return v * c;
+                    };
+                    case '/': return (t, slope) -> {
+                        double v = l.apply(t, slope);
+                        slope[0] /= c;
+                        return v / c;
+                    };
+                    default:
+                        // x^0 is 1 everywhere, including at x = 0 where the power rule would give 0 * 0^-1.
+                        if (c == 0) {
+                            return (t, slope) -> {
+                                l.apply(t, slope);
+                                slope[0] = 0;
+                                return 1;
+                            };
+                        }
+                        if (c == 2) {
+                            return (t, slope) -> {
+                                double v = l.apply(t, slope);
+                                slope[0] *= 2 * v;
+                                return v * v;
+                            };
+                        }
+                        return (t, slope) -> {
+                            double v = l.apply(t, slope);
+                            slope[0] *= c * Math.pow(v, c - 1);
+                            return Math.pow(v, c);
+                        };
+                }
+            }
+            switch (operator) {
+                case '+': return (t, slope) -> {
+                    double a = l.apply(t, slope);
+                    double da = slope[0];
+                    double b = r.apply(t, slope);
+                    slope[0] += da;
+                    return a + b;
+                };
+                case '-': return (t, slope) -> {
+                    double a = l.apply(t, slope);
+                    double da = slope[0];
+                    double b = r.apply(t, slope);
+                    slope[0] = da - slope[0];
+                    return a - b;
+                };
+                case '*': return (t, slope) -> {
+                    double a = l.apply(t, slope);
+                    double da = slope[0];
+                    double b = r.apply(t, slope);
+                    slope[0] = da * b + a * slope[0];
+                    return a * b;
+                };
+                case '/': return (t, slope) -> {
+                    double a = l.apply(t, slope);
+                    double da = slope[0];
+                    double b = r.apply(t, slope);
+                    double q = a / b;
+                    slope[0] = (da - q * slope[0]) / b;
+                    return q;
+                };
+                default: return (t, slope) -> {
+                    double a = l.apply(t, slope);
+                    double da = slope[0];
+                    double b = r.apply(t, slope);
+                    double db = slope[0];
+                    double p = Math.pow(a, b);
+                    // The exponent's term is left out where its slope is zero, so a negative base, where the
+                    // logarithm is undefined, still has the power rule's derivative there.
+                    double exponentTerm = db == 0 ? 0 : p * Math.log(a) * db;
+                    slope[0] = b * Math.pow(a, b - 1) * da + exponentTerm;
+                    return p;
+                };
+            }
+        }
+
+        @Override
+        public DoubleBinaryOperator compileXY() {
+            DoubleBinaryOperator l = left.compileXY();
+            DoubleBinaryOperator r = right.compileXY();
+
+            if (right.isConstant()) {
+                double c = right.evaluate(0);
+                switch (operator) {
+                    case '+': return (x, y) -> l.applyAsDouble(x, y) + c;
+                    case '-': return (x, y) -> l.applyAsDouble(x, y) - c;
+                    case '*': return (x, y) -> l.applyAsDouble(x, y) * c;
+                    case '/': return (x, y) -> l.applyAsDouble(x, y) / c;
+                    default:
+                        if (c == 2) {
+                            return (x, y) -> {
+                                double v = l.applyAsDouble(x, y);
+                                return v * v;
+                            };
+                        }
+                        return (x, y) -> Math.pow(l.applyAsDouble(x, y), c);
+                }
+            }
+            switch (operator) {
+                case '+': return (x, y) -> l.applyAsDouble(x, y) + r.applyAsDouble(x, y);
+                case '-': return (x, y) -> l.applyAsDouble(x, y) - r.applyAsDouble(x, y);
+                case '*': return (x, y) -> l.applyAsDouble(x, y) * r.applyAsDouble(x, y);
+                case '/': return (x, y) -> l.applyAsDouble(x, y) / r.applyAsDouble(x, y);
+                default: return (x, y) -> Math.pow(l.applyAsDouble(x, y), r.applyAsDouble(x, y));
+            }
+        }
+
+        @Override
+        public Interval evaluate(Interval variable) {
+            Interval l = left.evaluate(variable);
+            Interval r = right.evaluate(variable);
+            switch (operator) {
+                case '+': return l.add(r);
+                case '-': return l.subtract(r);
+                case '*': return l.multiply(r);
+                case '/': return l.divide(r);
+                default: return l.pow(r);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + operator + right + ")";
+        }
+    }
+
+    static final class Call extends Expression {
+        final String name;
+        final DoubleUnaryOperator function;
+        final Expression argument;
+
+        Call(String name, DoubleUnaryOperator function, Expression argument) {
+            this.name = name;
+            this.function = function;
+            this.argument = argument;
+        }
+
+        @Override
+        public double evaluate(double variable) {
+            return function.applyAsDouble(argument.evaluate(variable));
+        }
+
+        // The registered approximation if it fits within the error budget, otherwise the exact function.
+        DoubleUnaryOperator function(double errorBudget) {
+            FunctionRegistry.Approximation approximation = FunctionRegistry.approximation(name);
+            return approximation != null && approximation.getMaxError() <= errorBudget
+                    ? approximation.getFunction()
+                    : function;
+        }
+
+        @Override
+        public DoubleUnaryOperator compile(double errorBudget) {
+            DoubleUnaryOperator f = function(errorBudget);
+            DoubleUnaryOperator a = argument.compile();
+            return t -> f.applyAsDouble(a.applyAsDouble(t));
+        }
+
+        @Override
+        public DualFunction compileDual() {
+            DoubleUnaryOperator f = function;
+            DoubleUnaryOperator derivative = FunctionRegistry.derivative(name);
+            DoubleUnaryOperator df = derivative != null ? derivative : v -> Double.NaN;
+            DualFunction a = argument.compileDual();
+            return (t, slope) -> {
+                double v = a.apply(t, slope);
+                slope[0] *= df.applyAsDouble(v);
+                return f.applyAsDouble(v);
+            };
+        }
+
+        @Override
+        public double evaluate(double x, double y) {
+            return function.applyAsDouble(argument.evaluate(x, y));
+        }
+
+        @Override
+        public DoubleBinaryOperator compileXY() {
+            DoubleUnaryOperator f = function;
+            DoubleBinaryOperator a = argument.compileXY();
+            return (x, y) -> f.applyAsDouble(a.applyAsDouble(x, y));
+        }
+
+        @Override
+        public Interval evaluate(Interval variable) {
+            Interval a = argument.evaluate(variable);
+            if (a.isEmpty()) return Interval.EMPTY;
+            UnaryOperator<Interval> extension = FunctionRegistry.interval(name);
+            return extension != null ? extension.apply(a) : Interval.ENTIRE;
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + argument + ")";
+        }
+    }
+}
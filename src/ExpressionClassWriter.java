@@ -0,0 +1,349 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+// Generates a hidden class whose applyAsDouble evaluates a whole expression tree in one straight-line method, so the
+// JIT sees plain arithmetic instead of a closure call per node. Registered functions are held in static final
+// fields, which the JIT treats as constants and inlines through. Hidden classes are unloaded along with their last
+// instance, so the classes of equations that have since been edited away do not accumulate.
+final class ExpressionClassWriter {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final String CLASS_NAME = "CompiledExpression";
+    private static final String OPERATOR = "java/util/function/DoubleUnaryOperator";
+    private static final String OPERATOR_DESCRIPTOR = "L" + OPERATOR + ";";
+    private static final int MAX_CODE_LENGTH = 65535;
+    private static final int MAX_FUNCTIONS = Short.MAX_VALUE;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD_1 = 0x27;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int AALOAD = 0x32;
+    private static final int ASTORE_0 = 0x4b;
+    private static final int DUP2 = 0x5c;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int GETSTATIC = 0xb2;
+    private static final int PUTSTATIC = 0xb3;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int CHECKCAST = 0xc0;
+
+    private final ConstantPool pool = new ConstantPool();
+    private final List<DoubleUnaryOperator> functions = new ArrayList<>();
+
+    private ExpressionClassWriter() {
+    }
+
+    // Returns an evaluator equal to expression.compile(errorBudget), or null if the expression is too large for one
+    // method, too deeply nested to walk, or the class could not be defined.
+    static DoubleUnaryOperator compile(Expression expression, double errorBudget) {
+        try {
+            ExpressionClassWriter writer = new ExpressionClassWriter();
+            byte[] bytes = writer.write(expression, errorBudget);
+            if (bytes == null) return null;
+            Class<?> compiled = LOOKUP.defineHiddenClassWithClassData(bytes, writer.functions.toArray(), true)
+                    .lookupClass();
+            return (DoubleUnaryOperator) compiled.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | IOException | StackOverflowError e) {
+            return null;
+        }
+    }
+
+    private byte[] write(Expression expression, double errorBudget) throws IOException {
+        Code apply = new Code();
+        emit(apply, expression, errorBudget);
+        apply.op(DRETURN, -2);
+        if (apply.length() > MAX_CODE_LENGTH || functions.size() > MAX_FUNCTIONS) return null;
+
+        Code constructor = new Code();
+        constructor.op(ALOAD_0, 1);
+        constructor.op(INVOKESPECIAL, -1);
+        constructor.u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+        constructor.op(RETURN, 0);
+
+        int methodCount = 2;
+        Code initializer = null;
+        if (!functions.isEmpty()) {
+            initializer = loadFunctions();
+            methodCount++;
+        }
+
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int operator = pool.classRef(OPERATOR);
+        int codeName = pool.utf8("Code");
+
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(members);
+        out.writeShort(ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(operator);
+
+        out.writeShort(functions.size());
+        for (int i = 0; i < functions.size(); i++) {
+            out.writeShort(ACC_PRIVATE | ACC_STATIC | ACC_FINAL);
+            out.writeShort(pool.utf8(fieldName(i)));
+            out.writeShort(pool.utf8(OPERATOR_DESCRIPTOR));
+            out.writeShort(0);
+        }
+
+        out.writeShort(methodCount);
+        writeMethod(out, codeName, ACC_PUBLIC, "<init>", "()V", constructor, 1);
+        writeMethod(out, codeName, ACC_PUBLIC, "applyAsDouble", "(D)D", apply, 3);
+        if (initializer != null) writeMethod(out, codeName, ACC_STATIC, "<clinit>", "()V", initializer, 1);
+        out.writeShort(0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream classFile = new DataOutputStream(bytes);
+        classFile.writeInt(0xCAFEBABE);
+        classFile.writeShort(0);
+        // Java 17 class files; the generated code has no branches, so no stack map frames are needed.
+        classFile.writeShort(61);
+        pool.writeTo(classFile);
+        members.writeTo(classFile);
+        return bytes.toByteArray();
+    }
+
+    private void writeMethod(DataOutputStream out, int codeName, int access, String name, String descriptor, Code code,
+                             int maxLocals) throws IOException {
+        out.writeShort(access);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(descriptor));
+        out.writeShort(1);
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length());
+        out.writeShort(code.maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length());
+        code.bytes.writeTo(out);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    // Copies the functions from the class data into their static fields.
+    private Code loadFunctions() {
+        Code code = new Code();
+        code.op(INVOKESTATIC, 1);
+        code.u2(pool.methodRef("java/lang/invoke/MethodHandles", "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;"));
+        code.op(LDC_W, 1);
+        code.u2(pool.string("_"));
+        code.op(LDC_W, 1);
+        code.u2(pool.classRef("[Ljava/lang/Object;"));
+        code.op(INVOKESTATIC, -2);
+        code.u2(pool.methodRef("java/lang/invoke/MethodHandles", "classData",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;"));
+        code.op(CHECKCAST, 0);
+        code.u2(pool.classRef("[Ljava/lang/Object;"));
+        code.op(ASTORE_0, -1);
+        for (int i = 0; i < functions.size(); i++) {
+            code.op(ALOAD_0, 1);
+            code.op(SIPUSH, 1);
+            code.u2(i);
+            code.op(AALOAD, -1);
+            code.op(CHECKCAST, 0);
+            code.u2(pool.classRef(OPERATOR));
+            code.op(PUTSTATIC, -1);
+            code.u2(pool.fieldRef(CLASS_NAME, fieldName(i), OPERATOR_DESCRIPTOR));
+        }
+        code.op(RETURN, 0);
+        return code;
+    }
+
+    // Mirrors Expression.compile, node for node, so the generated class computes exactly what the closures do.
+    private void emit(Code code, Expression expression, double errorBudget) {
+        if (expression instanceof Expression.Constant) {
+            double value = ((Expression.Constant) expression).value;
+            if (Double.doubleToRawLongBits(value) == 0) {
+                code.op(DCONST_0, 2);
+            } else if (value == 1) {
+                code.op(DCONST_1, 2);
+            } else {
+                code.op(LDC2_W, 2);
+                code.u2(pool.doubleConstant(value));
+            }
+        } else if (expression instanceof Expression.Variable) {
+            code.op(DLOAD_1, 2);
+        } else if (expression instanceof Expression.Negate) {
+            emit(code, ((Expression.Negate) expression).operand, errorBudget);
+            code.op(DNEG, 0);
+        } else if (expression instanceof Expression.Binary) {
+            emitBinary(code, (Expression.Binary) expression, errorBudget);
+        } else {
+            Expression.Call call = (Expression.Call) expression;
+            code.op(GETSTATIC, 1);
+            code.u2(pool.fieldRef(CLASS_NAME, fieldName(functions.size()), OPERATOR_DESCRIPTOR));
+            functions.add(call.function(errorBudget));
+            emit(code, call.argument, 0);
+            code.op(INVOKEINTERFACE, -1);
+            code.u2(pool.interfaceMethodRef(OPERATOR, "applyAsDouble", "(D)D"));
+            code.u1(3);
+            code.u1(0);
+        }
+    }
+
+    private void emitBinary(Code code, Expression.Binary binary, double errorBudget) {
+        emit(code, binary.left, binary.leftBudget(errorBudget));
+        if (binary.operator == '^' && binary.right.isConstant() && binary.right.evaluate(0) == 2) {
+            code.op(DUP2, 2);
+            code.op(DMUL, -2);
+            return;
+        }
+        emit(code, binary.right, binary.rightBudget(errorBudget));
+        switch (binary.operator) {
+            case '+': code.op(DADD, -2); break;
+            case '-': code.op(DSUB, -2); break;
+            case '*': code.op(DMUL, -2); break;
+            case '/': code.op(DDIV, -2); break;
+            default:
+                code.op(INVOKESTATIC, -2);
+                code.u2(pool.methodRef("java/lang/Math", "pow", "(DD)D"));
+        }
+    }
+
+    private static String fieldName(int index) {
+        return "f" + index;
+    }
+
+    // A method body, tracking the operand stack depth (doubles take two slots) to size the frame.
+    private static final class Code {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int stack;
+        int maxStack;
+
+        void op(int opcode, int stackChange) {
+            bytes.write(opcode);
+            stack += stackChange;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        void u1(int value) {
+            bytes.write(value);
+        }
+
+        void u2(int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+        }
+
+        int length() {
+            return bytes.size();
+        }
+    }
+
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int STRING = 8;
+        private static final int FIELD_REF = 9;
+        private static final int METHOD_REF = 10;
+        private static final int INTERFACE_METHOD_REF = 11;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indices = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            Integer index = indices.get("U" + value);
+            if (index != null) return index;
+            try {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return add("U" + value, 1);
+        }
+
+        int classRef(String internalName) {
+            return reference("C" + internalName, CLASS, utf8(internalName));
+        }
+
+        int string(String value) {
+            return reference("S" + value, STRING, utf8(value));
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return member(FIELD_REF, owner, name, descriptor);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            return member(METHOD_REF, owner, name, descriptor);
+        }
+
+        int interfaceMethodRef(String owner, String name, String descriptor) {
+            return member(INTERFACE_METHOD_REF, owner, name, descriptor);
+        }
+
+        // Doubles take two pool slots.
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            Integer index = indices.get("D" + bits);
+            if (index != null) return index;
+            bytes.write(DOUBLE);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes.write((int) (bits >>> shift));
+            }
+            return add("D" + bits, 2);
+        }
+
+        private int member(int tag, String owner, String name, String descriptor) {
+            String key = tag + owner + "." + name + descriptor;
+            Integer index = indices.get(key);
+            if (index != null) return index;
+            int ownerIndex = classRef(owner);
+            int nameAndType = reference("N" + name + descriptor, NAME_AND_TYPE, utf8(name), utf8(descriptor));
+            return reference(key, tag, ownerIndex, nameAndType);
+        }
+
+        private int reference(String key, int tag, int... operands) {
+            Integer index = indices.get(key);
+            if (index != null) return index;
+            bytes.write(tag);
+            for (int operand : operands) {
+                bytes.write(operand >>> 8);
+                bytes.write(operand);
+            }
+            return add(key, 1);
+        }
+
+        private int add(String key, int slots) {
+            int index = count;
+            indices.put(key, index);
+            count += slots;
+            return index;
+        }
+
+        void writeTo(DataOutputStream classFile) throws IOException {
+            if (count > 0xFFFF) throw new IOException("Constant pool too large");
+            classFile.writeShort(count);
+            bytes.writeTo(classFile);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+import java.util.function.DoubleUnaryOperator;
+
+// Single-pass recursive-descent parser for the expression language shared by every equation form:
+//
+//   expression = term { ("+" | "-") term }
+//   term       = unary { ("*" | "/") unary | power }    a factor written straight after another multiplies: 3x, 2sin(t)
+//   unary      = ("+" | "-") unary | power
+//   power      = primary [ "^" unary ]                  right-associative, so -x^2 is -(x^2) and 2^-x works
+//   primary    = number | name | name "(" expression ")" | "(" expression ")"
+//
+// Names are matched greedily against the variables and the FunctionRegistry, so "pix" reads as pi*x and "exp(t)"
+// as the exponential rather than e*x*p. Constant sub-expressions are folded by the Expression factories.
+public final class ExpressionParser {
+    private final String source;
+    private final String[] variables;
+    private int position;
+
+    private ExpressionParser(String source, String... variables) {
+        this.source = source;
+        this.variables = variables;
+    }
+
+    // Parses source as an expression in the named variable; pass null for an expression that must be constant.
+    public static Expression parse(String source, String variable) {
+        return variable == null ? parse(new ExpressionParser(source)) : parse(new ExpressionParser(source, variable));
+    }
+
+    // Parses source as an expression in two variables, read by Expression.evaluate(x, y) as x and y respectively.
+    public static Expression parse(String source, String xVariable, String yVariable) {
+        return parse(new ExpressionParser(source, xVariable, yVariable));
+    }
+
+    private static Expression parse(ExpressionParser parser) {
+        String source = parser.source;
+        Expression expression = parser.parseExpression();
+        parser.skipWhitespace();
+        if (parser.position < source.length()) {
+            throw parser.error("Unexpected '" + source.charAt(parser.position) + "'");
+        }
+        return expression;
+    }
+
+    private Expression parseExpression() {
+        Expression result = parseTerm();
+        while (true) {
+            if (accept('+')) {
+                result = Expression.add(result, parseTerm());
+            } else if (accept('-')) {
+                result = Expression.subtract(result, parseTerm());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression parseTerm() {
+        Expression result = parseUnary();
+        while (true) {
+            if (accept('*')) {
+                result = Expression.multiply(result, parseUnary());
+            } else if (accept('/')) {
+                result = Expression.divide(result, parseUnary());
+            } else if (startsPrimary()) {
+                result = Expression.multiply(result, parsePower());
+            } else {
+                return result;
+            }
+        }
+    }
+
+    private Expression parseUnary() {
+        if (accept('-')) return Expression.negate(parseUnary());
+        if (accept('+')) return parseUnary();
+        return parsePower();
+    }
+
+    private Expression parsePower() {
+        Expression base = parsePrimary();
+        if (accept('^')) return Expression.power(base, parseUnary());
+        return base;
+    }
+
+    private Expression parsePrimary() {
+        skipWhitespace();
+        if (position >= source.length()) throw error("Unexpected end of expression");
+
+        char c = source.charAt(position);
+        if (accept('(')) {
+            Expression inner = parseExpression();
+            expect(')');
+            return inner;
+        }
+        if (isDigit(c) || c == '.') return parseNumber();
+        if (Character.isLetter(c)) return parseName();
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private Expression parseNumber() {
+        int start = position;
+        boolean seenPoint = false;
+        while (position < source.length()) {
+            char c = source.charAt(position);
+            if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else if (!isDigit(c)) {
+                break;
+            }
+            position++;
+        }
+        if (position - start == 1 && seenPoint) throw error("Expected a digit");
+        // An exponent needs a digit after the e and its sign; otherwise the e is the constant, as in 2e or 2e-x.
+        if (position < source.length() && (source.charAt(position) == 'e' || source.charAt(position) == 'E')) {
+            int digit = position + 1;
+            if (digit < source.length() && (source.charAt(digit) == '+' || source.charAt(digit) == '-')) digit++;
+            if (digit < source.length() && isDigit(source.charAt(digit))) {
+                position = digit;
+                while (position < source.length() && isDigit(source.charAt(position))) position++;
+            }
+        }
+        return Expression.constant(Double.parseDouble(source.substring(start, position)));
+    }
+
+    private Expression parseName() {
+        int start = position;
+        String name = matchName();
+        if (name == null) {
+            int end = position;
+            while (end < source.length() && Character.isLetter(source.charAt(end))) end++;
+            throw error("Unknown name '" + source.substring(start, end) + "'");
+        }
+        position += name.length();
+
+        for (int i = 0; i < variables.length; i++) {
+            if (name.equals(variables[i])) return Expression.variable(name, i);
+        }
+        Double constant = FunctionRegistry.constant(name);
+        if (constant != null) return Expression.constant(constant);
+
+        DoubleUnaryOperator function = FunctionRegistry.function(name);
+        if (!accept('(')) throw error("Expected '(' after " + name);
+        Expression argument = parseExpression();
+        expect(')');
+        return Expression.call(name, function, argument);
+    }
+
+    // The longest registered name or variable starting at the current position, or null.
+    private String matchName() {
+        String best = null;
+        for (String variable : variables) {
+            if ((best == null || variable.length() > best.length()) && source.startsWith(variable, position)) {
+                best = variable;
+            }
+        }
+        for (String name : FunctionRegistry.names()) {
+            if (best != null && name.length() <= best.length()) break;
+            if (source.startsWith(name, position)) {
+                best = name;
+                break;
+            }
+        }
+        return best;
+    }
+
+    private boolean startsPrimary() {
+        skipWhitespace();
+        if (position >= source.length()) return false;
+        char c = source.charAt(position);
+        return c == '(' || c == '.' || isDigit(c) || Character.isLetter(c);
+    }
+
+    private boolean accept(char expected) {
+        skipWhitespace();
+        if (position < source.length() && source.charAt(position) == expected) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char expected) {
+        if (!accept(expected)) {
+            throw error(position < source.length()
+                    ? "Expected '" + expected + "' but found '" + source.charAt(position) + "'"
+                    : "Expected '" + expected + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " in \"" + source + "\"");
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
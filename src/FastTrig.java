@@ -0,0 +1,39 @@
+// Table-driven sine and cosine for plotting, where an error far below a pixel is invisible. One period is tabulated
+// at TABLE_SIZE points and interpolated linearly, which is good to (2*pi/TABLE_SIZE)^2/8 plus rounding; arguments
+// too large to reduce accurately in double precision fall back to Math.
+public final class FastTrig {
+    public static final double MAX_ERROR = 1e-6;
+
+    private static final int TABLE_SIZE = 4096;
+    private static final int QUARTER = TABLE_SIZE / 4;
+    private static final double STEPS_PER_RADIAN = TABLE_SIZE / (2 * Math.PI);
+    private static final double MAX_ARGUMENT = 1e6;
+    private static final double[] SINE = new double[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            SINE[i] = Math.sin(i / STEPS_PER_RADIAN);
+        }
+    }
+
+    private FastTrig() {
+    }
+
+    public static double sin(double radians) {
+        if (!(Math.abs(radians) <= MAX_ARGUMENT)) return Math.sin(radians);
+        return lookup(radians * STEPS_PER_RADIAN, 0);
+    }
+
+    public static double cos(double radians) {
+        if (!(Math.abs(radians) <= MAX_ARGUMENT)) return Math.cos(radians);
+        return lookup(radians * STEPS_PER_RADIAN, QUARTER);
+    }
+
+    private static double lookup(double steps, int offset) {
+        double floor = Math.floor(steps);
+        int index = ((int) (long) floor + offset) & (TABLE_SIZE - 1);
+        double fraction = steps - floor;
+        double low = SINE[index];
+        return low + (SINE[index + 1] - low) * fraction;
+    }
+}
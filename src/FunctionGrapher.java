@@ -1,4 +1,6 @@
 public abstract class FunctionGrapher extends XYGrapher {
+    private Curve curve;
+
     public abstract double xIncrement();
 
     public double xValue(int pointNum) {
@@ -7,10 +9,66 @@ public abstract class FunctionGrapher extends XYGrapher {
 
     public abstract double yValue(double xValue);
 
+    public void yValues(double[] xs, double[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = yValue(xs[i]);
+        }
+    }
+
     public Coordinate getPoint(int pointNum) {
         double x = xValue(pointNum);
         if (x > xyStart().getX() + xRange()) return null;
 
         return new Coordinate(x, yValue(x));
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getPoints(int firstPoint, double[] xs, double[] ys, byte[] flags, int offset, int count) {
+        double start = xyStart().getX();
+        double end = start + xRange();
+        double increment = xIncrement();
+
+        int filled = 0;
+        while (filled < count) {
+            double x = ((double) (firstPoint + filled)) * increment + start;
+            if (x > end) break;
+            xs[offset + filled] = x;
+            flags[offset + filled] = SampleBuffer.CONNECTED;
+            filled++;
+        }
+        yValues(xs, ys, offset, offset + filled);
+        return filled;
+    }
+
+    protected double curveValue(double xValue) {
+        return yValue(xValue);
+    }
+
+    @Override
+    public Curve curve() {
+        if (curve == null) {
+            curve = new Curve() {
+                @Override
+                public double x(double t) {
+                    return t;
+                }
+
+                @Override
+                public double y(double t) {
+                    return curveValue(t);
+                }
+            };
+        }
+        return curve;
+    }
+
+    @Override
+    public double curveStart(Viewport viewport) {
+        return viewport.minX();
+    }
+
+    @Override
+    public double curveEnd(Viewport viewport) {
+        return viewport.maxX();
+    }
+}
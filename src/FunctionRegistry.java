@@ -0,0 +1,184 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.UnaryOperator;
+
+// Named functions and constants understood by the expression language. Lookups happen on every parse, possibly
+// from several threads at once, so the tables are concurrent and the name list is rebuilt only on registration.
+public final class FunctionRegistry {
+    private static final Map<String, DoubleUnaryOperator> FUNCTIONS = new ConcurrentHashMap<>();
+    private static final Map<String, Double> CONSTANTS = new ConcurrentHashMap<>();
+    private static final Map<String, Approximation> APPROXIMATIONS = new ConcurrentHashMap<>();
+    private static final Map<String, UnaryOperator<Interval>> INTERVALS = new ConcurrentHashMap<>();
+    private static final Map<String, DoubleUnaryOperator> DERIVATIVES = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[0];
+
+    static {
+        register("sin", Math::sin);
+        register("cos", Math::cos);
+        register("tan", Math::tan);
+        register("sec", t -> 1 / Math.cos(t));
+        register("csc", t -> 1 / Math.sin(t));
+        register("cot", t -> 1 / Math.tan(t));
+        register("asin", Math::asin);
+        register("acos", Math::acos);
+        register("atan", Math::atan);
+        register("sinh", Math::sinh);
+        register("cosh", Math::cosh);
+        register("tanh", Math::tanh);
+        register("exp", Math::exp);
+        register("ln", Math::log);
+        register("log", Math::log10);
+        register("sqrt", Math::sqrt);
+        register("cbrt", Math::cbrt);
+        register("abs", Math::abs);
+        register("floor", Math::floor);
+        register("ceil", Math::ceil);
+        register("sign", Math::signum);
+
+        registerApproximation("sin", FastTrig::sin, FastTrig.MAX_ERROR);
+        registerApproximation("cos", FastTrig::cos, FastTrig.MAX_ERROR);
+
+        registerDerivative("sin", Math::cos);
+        registerDerivative("cos", t -> -Math.sin(t));
+        registerDerivative("tan", t -> 1 / (Math.cos(t) * Math.cos(t)));
+        registerDerivative("sec", t -> Math.tan(t) / Math.cos(t));
+        registerDerivative("csc", t -> -1 / (Math.sin(t) * Math.tan(t)));
+        registerDerivative("cot", t -> -1 / (Math.sin(t) * Math.sin(t)));
+        registerDerivative("asin", t -> 1 / Math.sqrt(1 - t * t));
+        registerDerivative("acos", t -> -1 / Math.sqrt(1 - t * t));
+        registerDerivative("atan", t -> 1 / (1 + t * t));
+        registerDerivative("sinh", Math::cosh);
+        registerDerivative("cosh", Math::sinh);
+        registerDerivative("tanh", t -> 1 / (Math.cosh(t) * Math.cosh(t)));
+        registerDerivative("exp", Math::exp);
+        registerDerivative("ln", t -> 1 / t);
+        registerDerivative("log", t -> 1 / (t * Math.log(10)));
+        registerDerivative("sqrt", t -> 0.5 / Math.sqrt(t));
+        registerDerivative("cbrt", t -> 1 / (3 * Math.cbrt(t) * Math.cbrt(t)));
+        registerDerivative("abs", Math::signum);
+        registerDerivative("floor", t -> 0);
+        registerDerivative("ceil", t -> 0);
+        registerDerivative("sign", t -> 0);
+
+        double inf = Double.POSITIVE_INFINITY;
+        registerInterval("sin", Interval::sin);
+        registerInterval("cos", Interval::cos);
+        registerInterval("tan", Interval::tan);
+        registerInterval("sec", t -> Interval.point(1).divide(t.cos()));
+        registerInterval("csc", t -> Interval.point(1).divide(t.sin()));
+        registerInterval("cot", t -> t.cos().divide(t.sin()));
+        registerInterval("asin", t -> t.increasing(Math::asin, -1, 1));
+        registerInterval("acos", t -> t.decreasing(Math::acos, -1, 1));
+        registerInterval("atan", t -> t.increasing(Math::atan, -inf, inf));
+        registerInterval("sinh", t -> t.increasing(Math::sinh, -inf, inf));
+        registerInterval("cosh", t -> t.even(Math::cosh));
+        registerInterval("tanh", t -> t.increasing(Math::tanh, -inf, inf));
+        registerInterval("exp", t -> t.increasing(Math::exp, -inf, inf));
+        registerInterval("ln", t -> t.increasing(Math::log, 0, inf));
+        registerInterval("log", t -> t.increasing(Math::log10, 0, inf));
+        registerInterval("sqrt", t -> t.increasing(Math::sqrt, 0, inf));
+        registerInterval("cbrt", t -> t.increasing(Math::cbrt, -inf, inf));
+        registerInterval("abs", t -> t.even(Math::abs));
+        registerInterval("floor", t -> t.increasing(Math::floor, -inf, inf));
+        registerInterval("ceil", t -> t.increasing(Math::ceil, -inf, inf));
+        registerInterval("sign", t -> t.increasing(Math::signum, -inf, inf));
+
+        registerConstant("pi", Math.PI);
+        registerConstant("π", Math.PI);
+        registerConstant("e", Math.E);
+    }
+
+    private FunctionRegistry() {
+    }
+
+    public static synchronized void register(String name, DoubleUnaryOperator function) {
+        FUNCTIONS.put(name, function);
+        CONSTANTS.remove(name);
+        APPROXIMATIONS.remove(name);
+        INTERVALS.remove(name);
+        DERIVATIVES.remove(name);
+        rebuildNames();
+    }
+
+    public static synchronized void registerConstant(String name, double value) {
+        CONSTANTS.put(name, value);
+        FUNCTIONS.remove(name);
+        APPROXIMATIONS.remove(name);
+        INTERVALS.remove(name);
+        DERIVATIVES.remove(name);
+        rebuildNames();
+    }
+
+    // A cheaper stand-in for a registered function, never further than maxError from it for any argument.
+    public static synchronized void registerApproximation(String name, DoubleUnaryOperator function, double maxError) {
+        if (!FUNCTIONS.containsKey(name)) throw new IllegalArgumentException("No function named " + name);
+        APPROXIMATIONS.put(name, new Approximation(function, maxError));
+    }
+
+    // An interval extension of a registered function: given any interval of arguments it returns an interval holding
+    // every value the function takes on it.
+    public static synchronized void registerInterval(String name, UnaryOperator<Interval> extension) {
+        if (!FUNCTIONS.containsKey(name)) throw new IllegalArgumentException("No function named " + name);
+        INTERVALS.put(name, extension);
+    }
+
+    // The exact derivative of a registered function, for differentiating expressions that call it.
+    public static synchronized void registerDerivative(String name, DoubleUnaryOperator derivative) {
+        if (!FUNCTIONS.containsKey(name)) throw new IllegalArgumentException("No function named " + name);
+        DERIVATIVES.put(name, derivative);
+    }
+
+    // Returns null if no function has this name.
+    public static DoubleUnaryOperator function(String name) {
+        return FUNCTIONS.get(name);
+    }
+
+    // Returns null if the function has no registered approximation.
+    public static Approximation approximation(String name) {
+        return APPROXIMATIONS.get(name);
+    }
+
+    // Returns null if the function has no registered interval extension.
+    public static UnaryOperator<Interval> interval(String name) {
+        return INTERVALS.get(name);
+    }
+
+    // Returns null if the function has no registered derivative.
+    public static DoubleUnaryOperator derivative(String name) {
+        return DERIVATIVES.get(name);
+    }
+
+    // Returns null if no constant has this name.
+    public static Double constant(String name) {
+        return CONSTANTS.get(name);
+    }
+
+    // Every registered function and constant name, longest first so the parser can match greedily.
+    public static String[] names() {
+        return names;
+    }
+
+    private static void rebuildNames() {
+        List<String> all = new ArrayList<>(FUNCTIONS.keySet());
+        all.addAll(CONSTANTS.keySet());
+        all.sort((a, b) -> Integer.compare(b.length(), a.length()));
+        names = all.toArray(new String[0]);
+    }
+
+    public static final class Approximation {
+        private final DoubleUnaryOperator function;
+        private final double maxError;
+
+        Approximation(DoubleUnaryOperator function, double maxError) {
+            this.function = function;
+            this.maxError = maxError;
+        }
+
+        public DoubleUnaryOperator getFunction() { return function; }
+
+        public double getMaxError() { return maxError; }
+    }
+}
@@ -1,56 +1,499 @@
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 public class GrapherApp extends JFrame implements EquationListener {
+    // The session is saved on exit and reopened on the next start. A restored session stays memory-mapped for its
+    // lazily read samples, and a mapped file cannot be replaced on Windows, so saves alternate between two files:
+    // each exit writes the one that was not restored, and each start removes the older.
+    private static final Path AUTOSAVE_DIRECTORY = Paths.get(System.getProperty("user.home"), ".graphing-calculator");
+    private static final Path[] AUTOSAVES = {
+            AUTOSAVE_DIRECTORY.resolve("session.gcs"), AUTOSAVE_DIRECTORY.resolve("session-alternate.gcs")};
 
+    private final Sidebar sidebar;
     private final GraphPanel graphPanel;
+    // Plotted curves by equation id, in the order they were added to the graph.
+    private final Map<Integer, XYGrapher> plotted = new LinkedHashMap<>();
+    // Imported data series, drawn beneath the equations.
+    private final List<XYGrapher> dataSeries = new ArrayList<>();
+    private ValueTableDialog valueTable;
+    private Path restoredAutosave;
 
     public GrapherApp() {
         setTitle("Graphing Calculator");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
+        RenderMetrics.registerMBean();
 
-        Sidebar sidebar = new Sidebar();
+        sidebar = new Sidebar();
         sidebar.setEquationListener(this);
         add(sidebar, BorderLayout.WEST);
 
         graphPanel = new GraphPanel();
         graphPanel.setPreferredSize(new Dimension(600, 400));
         add(graphPanel, BorderLayout.CENTER);
+        setJMenuBar(createMenuBar());
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                try {
+                    saveSession(restoredAutosave == AUTOSAVES[0] ? AUTOSAVES[1] : AUTOSAVES[0]);
+                    if (restoredAutosave != null) Files.deleteIfExists(restoredAutosave);
+                } catch (IOException ex) {
+                    // A restored file that is still mapped may refuse deletion; the next start removes it.
+                    System.err.println("Could not save session: " + ex.getMessage());
+                }
+            }
+        });
 
         pack();
         setLocationRelativeTo(null);
+        Path autosave = latestAutosave();
+        if (autosave != null) {
+            try {
+                openSession(autosave);
+                restoredAutosave = autosave;
+            } catch (IOException ex) {
+                System.err.println("Could not restore session: " + ex.getMessage());
+            }
+        }
         setVisible(true);
     }
 
+    // The newer autosave, if any, after deleting the other, which a previous exit could not remove.
+    private static Path latestAutosave() {
+        Path latest = null;
+        long latestTime = Long.MIN_VALUE;
+        for (Path autosave : AUTOSAVES) {
+            try {
+                long time = Files.getLastModifiedTime(autosave).toMillis();
+                if (time > latestTime) {
+                    latest = autosave;
+                    latestTime = time;
+                }
+            } catch (IOException ex) {
+                // Not there.
+            }
+        }
+        for (Path autosave : AUTOSAVES) {
+            if (autosave == latest) continue;
+            try {
+                Files.deleteIfExists(autosave);
+            } catch (IOException ex) {
+                System.err.println("Could not remove old session: " + ex.getMessage());
+            }
+        }
+        return latest;
+    }
+
+    private JMenuBar createMenuBar() {
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        JMenu file = new JMenu("File");
+        file.add(menuItem("Open Session...", KeyStroke.getKeyStroke(KeyEvent.VK_O, shortcut), () -> {
+            Path path = choosePath(false, "gcs");
+            if (path != null) openSession(path);
+        }));
+        file.add(menuItem("Save Session...", KeyStroke.getKeyStroke(KeyEvent.VK_S, shortcut), () -> {
+            Path path = choosePath(true, "gcs");
+            if (path != null) saveSession(path);
+        }));
+        file.add(menuItem("Export JSON...", null, () -> {
+            Path path = choosePath(true, "json");
+            if (path != null) SessionFile.writeJson(path, new Session(graphPanel.getViewport(),
+                    sidebar.getEquations(), Collections.emptyList()));
+        }));
+
+        file.addSeparator();
+        file.add(menuItem("Import Data...", null, () -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileFilter(new FileNameExtensionFilter("CSV or binary x, y data", "csv", "txt", "bin"));
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                importData(chooser.getSelectedFile().toPath());
+            }
+        }));
+        file.add(menuItem("Clear Data", null, () -> {
+            for (XYGrapher grapher : dataSeries) {
+                ((DataSeriesGrapher) grapher).getSeries().close();
+            }
+            dataSeries.clear();
+            updateGraph();
+        }));
+
+        JMenu view = new JMenu("View");
+        JCheckBoxMenuItem guaranteed = new JCheckBoxMenuItem("Guaranteed Plotting");
+        guaranteed.addActionListener(e -> graphPanel.setGuaranteedPlotting(guaranteed.isSelected()));
+        view.add(guaranteed);
+        JCheckBoxMenuItem features = new JCheckBoxMenuItem("Roots and Extrema");
+        features.addActionListener(e -> graphPanel.setShowFeatures(features.isSelected()));
+        view.add(features);
+        JCheckBoxMenuItem tangent = new JCheckBoxMenuItem("Tangent on Hover");
+        tangent.addActionListener(e -> graphPanel.setShowTangent(tangent.isSelected()));
+        view.add(tangent);
+        view.addSeparator();
+        view.add(menuItem("Table of Values...", KeyStroke.getKeyStroke(KeyEvent.VK_T, shortcut), () -> {
+            if (valueTable == null) {
+                valueTable = new ValueTableDialog(this, () -> new ArrayList<>(plotted.values()),
+                        graphPanel.getViewport());
+            }
+            valueTable.setVisible(true);
+        }));
+
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(file);
+        menuBar.add(view);
+        return menuBar;
+    }
+
+    private JMenuItem menuItem(String text, KeyStroke accelerator, SessionAction action) {
+        JMenuItem item = new JMenuItem(text);
+        if (accelerator != null) item.setAccelerator(accelerator);
+        item.addActionListener(e -> {
+            try {
+                action.run();
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), text, JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        return item;
+    }
+
+    private Path choosePath(boolean save, String extension) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("*." + extension, extension));
+        int result = save ? chooser.showSaveDialog(this) : chooser.showOpenDialog(this);
+        if (result != JFileChooser.APPROVE_OPTION) return null;
+        Path path = chooser.getSelectedFile().toPath();
+        if (save && !path.getFileName().toString().contains(".")) {
+            path = path.resolveSibling(path.getFileName() + "." + extension);
+        }
+        return path;
+    }
+
+    private void saveSession(Path path) throws IOException {
+        SampleCache cache = graphPanel.getSampleCache();
+        SessionFile.write(path, new Session(graphPanel.getViewport(), sidebar.getEquations(),
+                cache.export(sidebar.getCanonicalForms())));
+    }
+
+    // Saved samples go to the cache first, so curves that are drawn straight away do not need sampling at all.
+    private void openSession(Path path) throws IOException {
+        Session session = SessionFile.read(path);
+        for (SampleCache.StoredSamples samples : session.getSamples()) {
+            graphPanel.getSampleCache().preload(samples);
+        }
+        graphPanel.setViewport(session.getViewport());
+        sidebar.setEquations(session.getEquations());
+    }
+
+    // Large files take a while to index, so they are read off the EDT and added once ready.
+    private void importData(Path path) {
+        new SwingWorker<DataSeriesGrapher, Void>() {
+            @Override
+            protected DataSeriesGrapher doInBackground() throws IOException {
+                return DataSeriesGrapher.read(path);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    DataSeriesGrapher grapher = get();
+                    grapher.setGraphColor(GrapherUtils.CURVE_COLORS[dataSeries.size() % GrapherUtils.CURVE_COLORS.length]);
+                    dataSeries.add(grapher);
+                    updateGraph();
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    JOptionPane.showMessageDialog(GrapherApp.this, cause.getMessage(), "Import Data",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private interface SessionAction {
+        void run() throws IOException;
+    }
+
     @Override
-    public void onEquationsUpdated(ArrayList<XYGrapher> updatedGraphers) {
-        graphPanel.updateGraph(updatedGraphers.toArray(new XYGrapher[0]), new Coordinate(-10, -10), 20, 20);
+    public void onEquationsChanged(List<EquationChange> changes) {
+        for (EquationChange change : changes) {
+            if (change.getKind() == EquationChange.Kind.REMOVED) {
+                plotted.remove(change.getId());
+            } else {
+                plotted.put(change.getId(), change.getGrapher());
+            }
+        }
+        updateGraph();
+    }
+
+    private void updateGraph() {
+        List<XYGrapher> graphers = new ArrayList<>(dataSeries);
+        graphers.addAll(plotted.values());
+        graphPanel.updateGraph(graphers.toArray(new XYGrapher[0]));
+        if (valueTable != null) valueTable.graphsChanged();
     }
 }
 
 class GraphPanel extends JPanel {
+    private static final double ZOOM_STEP = 1.1;
+    // The tangent follows a function whose graph passes within this many pixels of the pointer.
+    private static final double HOVER_PIXELS = 8;
+    private static final int DIRTY_MARGIN = 6;
+    private static final Stroke TANGENT_STROKE = new BasicStroke(1.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER,
+            10.0f, new float[]{6.0f, 4.0f}, 0.0f);
+
+    private final RenderScheduler scheduler = new RenderScheduler(new AdaptiveSampler());
+    private final CurveLayerCache layers = new CurveLayerCache();
+    private final MetricsOverlay overlay = new MetricsOverlay();
+    private RenderedCurve[] curves = new RenderedCurve[0];
+    private Viewport viewport = new Viewport(-10, -10, 20, 20, 1, 1);
     private XYGrapher[] graphers;
-    private Coordinate start;
-    private double xRange;
-    private double yRange;
+    private Point dragOrigin;
+    private boolean showTangent;
+    // The hovered point as x, y, dy/dx, or null when no tangent is shown.
+    private double[] tangent;
+    private Color tangentColor;
+
+    public GraphPanel() {
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                viewport = viewport.resize(Math.max(1, getWidth()), Math.max(1, getHeight()));
+                scheduleRender();
+            }
+        });
+
+        MouseAdapter navigation = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragOrigin = e.getPoint();
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                if (!showTangent) return;
+                findTangent(e.getX(), e.getY());
+                repaint();
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                if (tangent == null) return;
+                tangent = null;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                tangent = null;
+                if (dragOrigin == null) return;
+                viewport = viewport.pan(e.getX() - dragOrigin.x, e.getY() - dragOrigin.y);
+                dragOrigin = e.getPoint();
+                scheduleRender();
+                repaint();
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragOrigin = null;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                viewport = viewport.zoom(Math.pow(ZOOM_STEP, e.getPreciseWheelRotation()), e.getX(), e.getY());
+                scheduleRender();
+                repaint();
+            }
+        };
+        addMouseListener(navigation);
+        addMouseMotionListener(navigation);
+        addMouseWheelListener(navigation);
 
-    public void updateGraph(XYGrapher[] graphers, Coordinate start, double xRange, double yRange) {
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "toggleMetrics");
+        getActionMap().put("toggleMetrics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                overlay.toggle();
+                repaint();
+            }
+        });
+    }
+
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    // Shows the same region of the plane as the given viewport, at this panel's current size.
+    public void setViewport(Viewport window) {
+        viewport = new Viewport(window.minX(), window.minY(), window.xRange(), window.yRange(),
+                viewport.pixelsWide(), viewport.pixelsHigh());
+        scheduleRender();
+        repaint();
+    }
+
+    public SampleCache getSampleCache() {
+        return scheduler.getCache();
+    }
+
+    // Switches functions between adaptive sampling and interval plotting; see AdaptiveSampler.setGuaranteed.
+    public void setGuaranteedPlotting(boolean guaranteed) {
+        scheduler.getCache().getSampler().setGuaranteed(guaranteed);
+        scheduleRender();
+    }
+
+    public void setShowFeatures(boolean showFeatures) {
+        scheduler.setShowFeatures(showFeatures);
+        scheduleRender();
+    }
+
+    public void setShowTangent(boolean showTangent) {
+        this.showTangent = showTangent;
+        tangent = null;
+        repaint();
+    }
+
+    // Picks the function graph nearest the pointer in the pointer's column, using its exact derivative.
+    private void findTangent(int xPixel, int yPixel) {
+        tangent = null;
+        double x = viewport.minX() + xPixel * viewport.xPerPixel();
+        double nearest = HOVER_PIXELS;
+        double[] point = new double[4];
+        for (RenderedCurve curve : curves) {
+            if (curve == null || !(curve.getGrapher() instanceof FunctionGrapher)) continue;
+            DifferentiableCurve differentiable = curve.getGrapher().differentiableCurve();
+            if (differentiable == null) continue;
+            differentiable.evaluate(x, point);
+            if (!Double.isFinite(point[1]) || !Double.isFinite(point[3])) continue;
+            double distance = Math.abs(viewport.toPixelY(point[1]) - yPixel);
+            if (distance <= nearest) {
+                nearest = distance;
+                tangent = new double[]{x, point[1], point[3]};
+                tangentColor = curve.getColor();
+            }
+        }
+    }
+
+    private void paintTangent(Graphics2D g2) {
+        double px = viewport.toPixelX(tangent[0]);
+        double py = viewport.toPixelY(tangent[1]);
+        // Direction in pixels, scaled to reach past the panel's corners from anywhere on it.
+        double dx = 1 / viewport.xPerPixel();
+        double dy = -tangent[2] / viewport.yPerPixel();
+        double scale = Math.hypot(getWidth(), getHeight()) / Math.hypot(dx, dy);
+        dx *= scale;
+        dy *= scale;
+
+        Stroke stroke = g2.getStroke();
+        g2.setColor(tangentColor);
+        g2.setStroke(TANGENT_STROKE);
+        g2.draw(new java.awt.geom.Line2D.Double(px - dx, py - dy, px + dx, py + dy));
+        g2.setStroke(stroke);
+        g2.fillOval((int) Math.round(px) - 3, (int) Math.round(py) - 3, 6, 6);
+        g2.drawString(String.format("(%.4g, %.4g)  slope %.4g", tangent[0], tangent[1], tangent[2]),
+                (int) Math.round(px) + 8, (int) Math.round(py) - 8);
+    }
+
+    public void updateGraph(XYGrapher[] graphers) {
         this.graphers = graphers;
-        this.start = start;
-        this.xRange = xRange;
-        this.yRange = yRange;
 
+        scheduleRender();
+    }
+
+    private void scheduleRender() {
+        if (graphers == null || getWidth() <= 0 || getHeight() <= 0) return;
+
+        scheduler.submit(graphers, viewport, new RenderListener() {
+            @Override
+            public void onPreview(RenderedCurve[] rendered) {
+                showPreview(rendered);
+            }
+
+            @Override
+            public void onCurveRefined(int index, RenderedCurve curve) {
+                showRefinedCurve(index, curve);
+            }
+        });
+    }
+
+    // A curve with nothing new to show keeps whatever was drawn for its grapher before.
+    private void showPreview(RenderedCurve[] rendered) {
+        Map<XYGrapher, RenderedCurve> shown = new HashMap<>();
+        for (RenderedCurve curve : curves) {
+            if (curve != null) shown.put(curve.getGrapher(), curve);
+        }
+        for (int i = 0; i < rendered.length; i++) {
+            if (rendered[i] == null && graphers != null && i < graphers.length) rendered[i] = shown.get(graphers[i]);
+        }
+        curves = rendered;
         repaint();
     }
 
+    // Only the area covered by the curve before or after refinement is repainted, unless a tangent or the metrics
+    // overlay, which depend on every curve, are showing.
+    private void showRefinedCurve(int index, RenderedCurve curve) {
+        if (index >= curves.length) return;
+        Rectangle dirty = pixelBounds(curve);
+        if (curves[index] != null) dirty = dirty.union(pixelBounds(curves[index]));
+        curves[index] = curve;
+        if (tangent != null || overlay.isVisible()) {
+            repaint();
+        } else {
+            repaint(dirty);
+        }
+    }
+
+    private Rectangle pixelBounds(RenderedCurve curve) {
+        SampleBuffer samples = curve.getSamples();
+        double[] xs = samples.xs();
+        double[] ys = samples.ys();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < samples.size(); i++) {
+            if (!Double.isFinite(xs[i]) || !Double.isFinite(ys[i])) continue;
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        if (minX > maxX) return new Rectangle();
+        // Widened by the stroke and feature markers, and clamped so huge world values stay representable.
+        int left = (int) Math.floor(Math.max(-1, viewport.toPixelX(minX))) - DIRTY_MARGIN;
+        int right = (int) Math.ceil(Math.min(getWidth() + 1, viewport.toPixelX(maxX))) + DIRTY_MARGIN;
+        int top = (int) Math.floor(Math.max(-1, viewport.toPixelY(maxY))) - DIRTY_MARGIN;
+        int bottom = (int) Math.ceil(Math.min(getHeight() + 1, viewport.toPixelY(minY))) + DIRTY_MARGIN;
+        return new Rectangle(left, top, Math.max(0, right - left), Math.max(0, bottom - top));
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
 
-        if (graphers == null || start == null) return;
+        if (graphers != null) {
+            layers.paint(g, curves, viewport, getGraphicsConfiguration());
+        }
+        if (tangent != null) paintTangent((Graphics2D) g);
 
-        GrapherUtils.drawGraph(g, graphers, start, xRange, yRange, 0, 0, getWidth(), getHeight());
+        // Partial repaints, such as a refined curve's dirty rectangle, are not frames and would inflate the rate.
+        Rectangle clip = g.getClipBounds();
+        if (clip == null || clip.contains(0, 0, getWidth(), getHeight())) {
+            RenderMetrics.get().recordFrame(System.nanoTime() - start);
+            overlay.frameStarted(start);
+        }
+        overlay.paint(g);
     }
 }
\ No newline at end of file
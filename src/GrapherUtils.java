@@ -1,52 +1,103 @@
 import java.awt.*;
-import java.util.ArrayList;
 
 public class GrapherUtils {
+    public static final Color[] CURVE_COLORS = {
+            Color.BLACK,
+            new Color(255, 87, 82), // Light Red
+            new Color(65, 159, 255), // Light Blue
+            new Color(86, 216, 108), // Light Green
+            new Color(250, 126, 25), // Light Orange
+            new Color(140, 96, 242) // Light Purple
+    };
+
+    private static final Color AXIS_COLOR = new Color(165, 165, 165);
+    private static final Stroke CURVE_STROKE = new BasicStroke(2.0f);
+    private static final int MARKER_RADIUS = 4;
+    private static final ThreadLocal<PolylineDecimator> DECIMATORS = ThreadLocal.withInitial(PolylineDecimator::new);
 
     public static void drawGraph(Graphics g, XYGrapher[] graphers, Coordinate start, double xRange, double yRange, int xPixelStart, int yPixelStart, int pixelsWide, int pixelsHigh) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.translate(xPixelStart, yPixelStart);
+            drawGraph(g2, graphers, new Viewport(start, xRange, yRange, pixelsWide, pixelsHigh), new SampleBuffer(), new AdaptiveSampler());
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    public static void drawGraph(Graphics g, XYGrapher[] graphers, Viewport viewport, SampleBuffer samples, AdaptiveSampler sampler) {
         Graphics2D g2 = (Graphics2D) g;
         Stroke origStroke = g2.getStroke();
+
+        drawAxes(g, viewport);
+
+        g2.setStroke(CURVE_STROKE);
         for (XYGrapher grapher : graphers) {
-            ArrayList<Coordinate> coords = new ArrayList<>();
-            int i = 0;
-
-            for (Coordinate point = grapher.getPoint(i); point != null; point = grapher.getPoint(i)) {
-                i++;
-                if (point != null) {
-                    double xPixel = xPixelStart + (point.getX() - start.getX()) * (pixelsWide / xRange);
-                    double yPixel = yPixelStart + (start.getY() + yRange - point.getY()) * (pixelsHigh / yRange);
-                    coords.add(new Coordinate(xPixel, yPixel, point.drawFrom(), point.drawTo()));
-                }
-            }
+            sampler.sample(grapher, viewport, samples);
+            g.setColor(grapher.getGraphColor());
+            drawSamples(g2, samples, viewport);
+        }
+        g2.setStroke(origStroke);
+    }
 
-            int yAxis = xPixelStart - (int) (start.getX() * (pixelsWide / xRange));
-            int xAxis = yPixelStart + (int) ((start.getY() + yRange) * (pixelsHigh / yRange));
+    public static void drawCurves(Graphics g, RenderedCurve[] curves, Viewport viewport) {
+        Graphics2D g2 = (Graphics2D) g;
+        Stroke origStroke = g2.getStroke();
 
-            g.setColor(new Color(165, 165, 165));
-            g2.setStroke(origStroke);
-            if (xAxis > 0 && xAxis < pixelsHigh) {
-                g.drawLine(0, xAxis, pixelsWide, xAxis);
-            }
+        drawAxes(g, viewport);
 
-            if (yAxis > 0 && yAxis < pixelsWide) {
-                g.drawLine(yAxis, 0, yAxis, pixelsHigh);
-            }
+        g2.setStroke(CURVE_STROKE);
+        for (RenderedCurve curve : curves) {
+            if (curve == null) continue;
+            g.setColor(curve.getColor());
+            drawSamples(g2, curve.getSamples(), viewport);
+        }
+        g2.setStroke(origStroke);
+    }
 
-            g.setColor(grapher.getGraphColor());
-            g2.setStroke(new BasicStroke(2.0f));
-
-            for (int j = 1; j < coords.size(); j++) {
-                Coordinate current = coords.get(j);
-                Coordinate previous = coords.get(j - 1);
-                if (current.drawTo() && previous.drawFrom()) {
-                    g2.drawLine(
-                            (int) Math.round(previous.getX()),
-                            (int) Math.round(previous.getY()),
-                            (int) Math.round(current.getX()),
-                            (int) Math.round(current.getY())
-                    );
-                }
+    static void drawCurve(Graphics2D g2, RenderedCurve curve, Viewport viewport) {
+        Stroke origStroke = g2.getStroke();
+        g2.setStroke(CURVE_STROKE);
+        g2.setColor(curve.getColor());
+        drawSamples(g2, curve.getSamples(), viewport);
+        g2.setStroke(origStroke);
+        if (curve.getFeatures() != null) drawFeatures(g2, curve.getFeatures(), viewport);
+    }
+
+    // Roots are hollow, turning points filled.
+    static void drawFeatures(Graphics2D g2, CurveFeatures features, Viewport viewport) {
+        for (int i = 0; i < features.size(); i++) {
+            int x = (int) Math.round(viewport.toPixelX(features.x(i))) - MARKER_RADIUS;
+            int y = (int) Math.round(viewport.toPixelY(features.y(i))) - MARKER_RADIUS;
+            if (features.kind(i) == CurveFeatures.ROOT) {
+                Color color = g2.getColor();
+                g2.setColor(Color.WHITE);
+                g2.fillOval(x, y, 2 * MARKER_RADIUS, 2 * MARKER_RADIUS);
+                g2.setColor(color);
+                g2.drawOval(x, y, 2 * MARKER_RADIUS, 2 * MARKER_RADIUS);
+            } else {
+                g2.fillOval(x, y, 2 * MARKER_RADIUS, 2 * MARKER_RADIUS);
             }
         }
     }
-}
\ No newline at end of file
+
+    static void drawAxes(Graphics g, Viewport viewport) {
+        int pixelsWide = viewport.pixelsWide();
+        int pixelsHigh = viewport.pixelsHigh();
+        int yAxis = (int) viewport.toPixelX(0);
+        int xAxis = (int) viewport.toPixelY(0);
+
+        g.setColor(AXIS_COLOR);
+        if (xAxis > 0 && xAxis < pixelsHigh) {
+            g.drawLine(0, xAxis, pixelsWide, xAxis);
+        }
+
+        if (yAxis > 0 && yAxis < pixelsWide) {
+            g.drawLine(yAxis, 0, yAxis, pixelsHigh);
+        }
+    }
+
+    static void drawSamples(Graphics2D g2, SampleBuffer samples, Viewport viewport) {
+        g2.draw(DECIMATORS.get().decimate(samples, viewport));
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleUnaryOperator;
+
+// Evaluates an expression through its interpreted closures, which are ready as soon as it parses, until it has been
+// in use long enough and evaluated often enough to repay generating a class for it; the generated evaluator is then
+// swapped in. An equation being typed is replaced by the next keystroke long before it qualifies, so typing never
+// waits on code generation.
+final class HotFunction implements DoubleUnaryOperator {
+    // Evaluations between checks, and how long the expression must have existed when a check passes.
+    static final int COMPILE_THRESHOLD = 20_000;
+    static final long STABLE_NANOS = 250_000_000L;
+
+    private final Expression expression;
+    private final double errorBudget;
+    private final DoubleUnaryOperator interpreted;
+    private final long created = System.nanoTime();
+    private final AtomicBoolean requested = new AtomicBoolean();
+    private volatile DoubleUnaryOperator current;
+    // Counted racily from every sampling thread; lost updates only delay compilation.
+    private int calls;
+
+    HotFunction(Expression expression, double errorBudget) {
+        this.expression = expression;
+        this.errorBudget = errorBudget;
+        this.interpreted = expression.compile(errorBudget);
+        this.current = interpreted;
+    }
+
+    @Override
+    public double applyAsDouble(double t) {
+        DoubleUnaryOperator f = current;
+        if (f == interpreted && ++calls >= COMPILE_THRESHOLD) {
+            calls = 0;
+            if (System.nanoTime() - created >= STABLE_NANOS && requested.compareAndSet(false, true)) {
+                ForkJoinPool.commonPool().execute(this::compile);
+            }
+        }
+        return f.applyAsDouble(t);
+    }
+
+    public boolean isCompiled() {
+        return current != interpreted;
+    }
+
+    // If the class cannot be generated the closures simply stay in use.
+    private void compile() {
+        DoubleUnaryOperator compiled = ExpressionClassWriter.compile(expression, errorBudget);
+        if (compiled != null) current = compiled;
+    }
+}
@@ -0,0 +1,9 @@
+// Graphs the zero set of f(x, y). There is no natural parameter along the curve, so the samples come from contouring
+// the viewport with MarchingSquares rather than from getPoint or curve().
+public abstract class ImplicitGrapher extends XYGrapher {
+    public abstract double value(double x, double y);
+
+    public Coordinate getPoint(int pointNum) {
+        return null;
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.function.DoubleUnaryOperator;
+
+// A closed range of doubles that is guaranteed to contain the true result of whatever produced it. Every operation
+// rounds outward by an ulp, which also covers the library functions' own error of at most one ulp. Values outside a
+// function's domain are not points of the graph, so they are dropped; an interval left with nothing is EMPTY.
+public final class Interval {
+    public static final Interval ENTIRE = new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    public static final Interval EMPTY = new Interval(Double.NaN, Double.NaN);
+
+    private static final double TWO_PI = 2 * Math.PI;
+    // Beyond this the nearest multiple of pi can no longer be told apart, so periodic functions give up.
+    private static final double MAX_PERIODIC_ARGUMENT = 1e9;
+    // A negative base raised to more integer exponents than this is not worth enclosing one power at a time.
+    private static final int MAX_INTEGER_EXPONENTS = 16;
+
+    private final double low;
+    private final double high;
+
+    private Interval(double low, double high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    public static Interval of(double low, double high) {
+        if (!(low <= high)) return EMPTY;
+        return new Interval(low, high);
+    }
+
+    public static Interval point(double value) {
+        return of(value, value);
+    }
+
+    // Rounds the computed bounds outward so the true bounds are still inside.
+    private static Interval rounded(double low, double high) {
+        return of(Math.nextDown(low), Math.nextUp(high));
+    }
+
+    public double low() { return low; }
+
+    public double high() { return high; }
+
+    public boolean isEmpty() {
+        return Double.isNaN(low);
+    }
+
+    public boolean contains(double value) {
+        return low <= value && value <= high;
+    }
+
+    public Interval negate() {
+        return isEmpty() ? EMPTY : new Interval(-high, -low);
+    }
+
+    public Interval add(Interval other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        return rounded(low + other.low, high + other.high);
+    }
+
+    public Interval subtract(Interval other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        return rounded(low - other.high, high - other.low);
+    }
+
+    public Interval multiply(Interval other) {
+        if (isEmpty() || other.isEmpty()) return EMPTY;
+        double a = product(low, other.low);
+        double b = product(low, other.high);
+        double c = product(high, other.low);
+        double d = product(high, other.high);
+        return rounded(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+    }
+
+    // Zero times an unbounded end is zero: the end is only approached, never reached.
+    private static double product(double a, double b) {
+        return a == 0 || b == 0 ? 0 : a * b;
+    }
+
+    public Interval divide(Interval other) {
+        return multiply(other.reciprocal());
+    }
+
+    private Interval reciprocal() {
+        if (isEmpty() || (low == 0 && high == 0)) return EMPTY;
+        if (low > 0 || high < 0) return rounded(1 / high, 1 / low);
+        if (low == 0) return of(Math.nextDown(1 / high), Double.POSITIVE_INFINITY);
+        if (high == 0) return of(Double.NEGATIVE_INFINITY, Math.nextUp(1 / low));
+        return ENTIRE;
+    }
+
+    public Interval pow(Interval exponent) {
+        if (isEmpty() || exponent.isEmpty()) return EMPTY;
+        if (exponent.low == exponent.high) {
+            double n = exponent.low;
+            if (n == Math.rint(n) && Math.abs(n) <= Integer.MAX_VALUE) return integerPower((int) n);
+            // Math.pow is undefined for a negative base and a fractional exponent.
+            if (high < 0) return EMPTY;
+            return new Interval(Math.max(low, 0), high).positivePower(exponent);
+        }
+        if (low >= 0) return positivePower(exponent);
+        // A negative base only has a power at integer exponents, where its sign alternates, so that part is the
+        // hull of the few integer powers in range; any more than that are enclosed by ENTIRE.
+        double first = Math.ceil(exponent.low);
+        double last = Math.floor(exponent.high);
+        if (last - first >= MAX_INTEGER_EXPONENTS || Math.max(-first, last) > Integer.MAX_VALUE) return ENTIRE;
+        Interval result = high > 0 ? new Interval(0, high).positivePower(exponent) : EMPTY;
+        Interval negative = new Interval(low, Math.min(high, 0));
+        for (double n = first; n <= last; n++) {
+            result = result.hull(negative.integerPower((int) n));
+        }
+        return result;
+    }
+
+    // The smallest interval containing both.
+    private Interval hull(Interval other) {
+        if (isEmpty()) return other;
+        if (other.isEmpty()) return this;
+        return new Interval(Math.min(low, other.low), Math.max(high, other.high));
+    }
+
+    private Interval integerPower(int n) {
+        if (n == 0) return point(1);
+        if (n < 0) return integerPower(-n).reciprocal();
+        double a = Math.pow(low, n);
+        double b = Math.pow(high, n);
+        if (n % 2 == 1) return rounded(a, b);
+        if (low >= 0) return rounded(a, b);
+        if (high <= 0) return rounded(b, a);
+        return of(0, Math.nextUp(Math.max(a, b)));
+    }
+
+    // For a base of at least zero x^y is monotonic in each argument, so the extremes are at the corners.
+    private Interval positivePower(Interval exponent) {
+        double a = Math.pow(low, exponent.low);
+        double b = Math.pow(low, exponent.high);
+        double c = Math.pow(high, exponent.low);
+        double d = Math.pow(high, exponent.high);
+        return rounded(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+    }
+
+    // Encloses a function that never decreases on [domainLow, domainHigh] and is undefined outside it.
+    public Interval increasing(DoubleUnaryOperator function, double domainLow, double domainHigh) {
+        double from = Math.max(low, domainLow);
+        double to = Math.min(high, domainHigh);
+        if (isEmpty() || !(from <= to)) return EMPTY;
+        return rounded(function.applyAsDouble(from), function.applyAsDouble(to));
+    }
+
+    public Interval decreasing(DoubleUnaryOperator function, double domainLow, double domainHigh) {
+        double from = Math.max(low, domainLow);
+        double to = Math.min(high, domainHigh);
+        if (isEmpty() || !(from <= to)) return EMPTY;
+        return rounded(function.applyAsDouble(to), function.applyAsDouble(from));
+    }
+
+    // Encloses a function that decreases up to zero and increases after it, such as abs or cosh.
+    public Interval even(DoubleUnaryOperator function) {
+        if (isEmpty()) return EMPTY;
+        if (low >= 0) return increasing(function, 0, Double.POSITIVE_INFINITY);
+        if (high <= 0) return decreasing(function, Double.NEGATIVE_INFINITY, 0);
+        double top = Math.max(function.applyAsDouble(low), function.applyAsDouble(high));
+        return rounded(function.applyAsDouble(0), top);
+    }
+
+    public Interval sin() {
+        return periodic(Math::sin, Math.PI / 2);
+    }
+
+    public Interval cos() {
+        return periodic(Math::cos, 0);
+    }
+
+    // A function with period 2*pi, a maximum of 1 at peak and a minimum of -1 half a period later.
+    private Interval periodic(DoubleUnaryOperator function, double peak) {
+        if (isEmpty()) return EMPTY;
+        if (high - low >= TWO_PI || !(Math.max(-low, high) <= MAX_PERIODIC_ARGUMENT)) return of(-1, 1);
+        double a = function.applyAsDouble(low);
+        double b = function.applyAsDouble(high);
+        double top = reaches(peak, TWO_PI) ? 1 : Math.min(1, Math.nextUp(Math.max(a, b)));
+        double bottom = reaches(peak + Math.PI, TWO_PI) ? -1 : Math.max(-1, Math.nextDown(Math.min(a, b)));
+        return of(bottom, top);
+    }
+
+    public Interval tan() {
+        if (isEmpty()) return EMPTY;
+        if (high - low >= Math.PI || !(Math.max(-low, high) <= MAX_PERIODIC_ARGUMENT)) return ENTIRE;
+        if (reaches(Math.PI / 2, Math.PI)) return ENTIRE;
+        return rounded(Math.tan(low), Math.tan(high));
+    }
+
+    // True if some point + k * period may lie in this interval. Pi is only known to within an ulp, so points
+    // within a little of the ends count as inside; that can only make the enclosure wider.
+    private boolean reaches(double point, double period) {
+        double slack = 1e-12 * (1 + Math.max(-low, high));
+        double k = Math.ceil((low - slack - point) / period);
+        return point + k * period <= high + slack;
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "[]" : "[" + low + ", " + high + "]";
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.UnaryOperator;
+
+// Plots y = f(x) from an interval extension of f, so that every pixel the true graph passes through is painted,
+// however thin a spike or fast an oscillation. Each pixel column's x-interval is enclosed; parts of the enclosure
+// outside the view are pruned, and the column is halved again only while the enclosure is wider than a pixel and
+// wider than the values at its ends would explain. A column still straddling a pole or jump at the depth limit is
+// painted across everything its enclosure cannot rule out. Enclosures that never narrow, as for functions undefined
+// almost everywhere, would split every column to the depth limit, so a frame has a budget of enclosures on average
+// per column and is given up once that is spent.
+public class IntervalPlotter {
+    public static final int DEFAULT_MAX_DEPTH = 10;
+    public static final int DEFAULT_ENCLOSURES_PER_COLUMN = 64;
+
+    public enum Result { COMPLETE, CANCELLED, OVER_BUDGET }
+
+    private static final int COLUMNS_PER_BAND = 32;
+
+    private final int maxDepth;
+    private final int enclosuresPerColumn;
+
+    public IntervalPlotter() {
+        this(DEFAULT_MAX_DEPTH, DEFAULT_ENCLOSURES_PER_COLUMN);
+    }
+
+    public IntervalPlotter(int maxDepth, int enclosuresPerColumn) {
+        if (maxDepth < 0) throw new IllegalArgumentException("Invalid depth: " + maxDepth);
+        if (enclosuresPerColumn < 1) throw new IllegalArgumentException("Invalid budget: " + enclosuresPerColumn);
+        this.maxDepth = maxDepth;
+        this.enclosuresPerColumn = enclosuresPerColumn;
+    }
+
+    // Writes each painted span of a column as two samples, the first only drawing from and the second only drawing
+    // to. Nothing is written unless the result is COMPLETE.
+    public Result plot(UnaryOperator<Interval> function, Viewport viewport, SampleBuffer out,
+                        BooleanSupplier cancelled) {
+        // Columns are aligned to world coordinates so a pan does not shift them.
+        double columnWidth = viewport.xPerPixel();
+        double left = Math.floor(viewport.minX() / columnWidth) * columnWidth;
+        int columns = (int) Math.ceil((viewport.maxX() - left) / columnWidth);
+
+        long budget = (long) columns * enclosuresPerColumn;
+        AtomicLong spent = new AtomicLong();
+        BooleanSupplier stop = () -> spent.get() > budget || cancelled.getAsBoolean();
+
+        int bandCount = (columns + COLUMNS_PER_BAND - 1) / COLUMNS_PER_BAND;
+        SampleBuffer[] bands = new SampleBuffer[bandCount];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[bandCount];
+        for (int b = 0; b < bandCount; b++) {
+            int band = b;
+            tasks[b] = ForkJoinTask.adapt(() -> {
+                Band spans = new Band(function, viewport);
+                int firstColumn = band * COLUMNS_PER_BAND;
+                int lastColumn = Math.min(columns, firstColumn + COLUMNS_PER_BAND);
+                for (int i = firstColumn; i < lastColumn && !stop.getAsBoolean(); i++) {
+                    spent.addAndGet(spans.column(left + i * columnWidth, left + (i + 1) * columnWidth));
+                }
+                bands[band] = spans.out;
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+        if (cancelled.getAsBoolean()) return Result.CANCELLED;
+        if (spent.get() > budget) return Result.OVER_BUDGET;
+
+        for (SampleBuffer band : bands) {
+            out.append(band, 0, band.size());
+        }
+        return Result.COMPLETE;
+    }
+
+    // Works through a run of columns, merging overlapping spans within a column before they are written.
+    private final class Band {
+        final UnaryOperator<Interval> function;
+        final double minY;
+        final double maxY;
+        final double pixel;
+        final SampleBuffer out = new SampleBuffer();
+        double spanX;
+        double spanLow;
+        double spanHigh = Double.NaN;
+        int enclosures;
+
+        Band(UnaryOperator<Interval> function, Viewport viewport) {
+            this.function = function;
+            this.minY = viewport.minY();
+            this.maxY = viewport.maxY();
+            this.pixel = viewport.yPerPixel();
+        }
+
+        // Returns the number of enclosures the column took.
+        int column(double x0, double x1) {
+            spanX = 0.5 * (x0 + x1);
+            enclosures = 0;
+            enclose(x0, x1, 0);
+            flush();
+            return enclosures;
+        }
+
+        private void enclose(double x0, double x1, int depth) {
+            enclosures++;
+            Interval y = function.apply(Interval.of(x0, x1));
+            if (y.isEmpty() || y.high() < minY || y.low() > maxY) return;
+            double low = Math.max(y.low(), minY);
+            double high = Math.min(y.high(), maxY);
+            double xm = 0.5 * (x0 + x1);
+            if (depth == maxDepth || high - low <= pixel || xm <= x0 || xm >= x1 || explainedByEnds(y, x0, x1)) {
+                paint(low, high);
+                return;
+            }
+            enclose(x0, xm, depth + 1);
+            enclose(xm, x1, depth + 1);
+        }
+
+        // A continuous function covers everything between its end values, so an enclosure within a pixel of those
+        // cannot be narrowed much by splitting.
+        private boolean explainedByEnds(Interval y, double x0, double x1) {
+            Interval a = function.apply(Interval.point(x0));
+            Interval b = function.apply(Interval.point(x1));
+            if (a.isEmpty() || b.isEmpty()) return false;
+            return y.low() >= Math.min(a.low(), b.low()) - pixel && y.high() <= Math.max(a.high(), b.high()) + pixel;
+        }
+
+        // Spans are at least a pixel tall so a flat stretch still draws.
+        private void paint(double low, double high) {
+            if (high - low < pixel) {
+                double middle = 0.5 * (low + high);
+                low = middle - 0.5 * pixel;
+                high = middle + 0.5 * pixel;
+            }
+            if (!Double.isNaN(spanHigh) && low <= spanHigh + pixel && high >= spanLow - pixel) {
+                spanLow = Math.min(spanLow, low);
+                spanHigh = Math.max(spanHigh, high);
+                return;
+            }
+            flush();
+            spanLow = low;
+            spanHigh = high;
+        }
+
+        private void flush() {
+            if (Double.isNaN(spanHigh)) return;
+            out.add(spanX, spanLow, SampleBuffer.DRAW_FROM);
+            out.add(spanX, spanHigh, SampleBuffer.DRAW_TO);
+            spanHigh = Double.NaN;
+        }
+    }
+}
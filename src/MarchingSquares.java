@@ -0,0 +1,182 @@
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+
+// Extracts the zero set of an ImplicitGrapher as line segments. A coarse grid aligned to world coordinates (so a
+// pan does not shift the cells) is split into row bands that are contoured in parallel. Coarse cells whose corners
+// or centre change sign are subdivided quadtree-style down to leaf cells, where the crossing points are interpolated
+// linearly along the cell edges. Features smaller than a coarse cell that miss its corners and centre are not found.
+public class MarchingSquares {
+    public static final double DEFAULT_COARSE_PIXELS = 16;
+    public static final double DEFAULT_LEAF_PIXELS = 2;
+
+    private static final int ROWS_PER_BAND = 4;
+
+    private final double coarsePixels;
+    private final int depth;
+
+    public MarchingSquares() {
+        this(DEFAULT_COARSE_PIXELS, DEFAULT_LEAF_PIXELS);
+    }
+
+    public MarchingSquares(double coarsePixels, double leafPixels) {
+        if (!(leafPixels > 0) || !(coarsePixels >= leafPixels)) {
+            throw new IllegalArgumentException("Invalid cell sizes: " + coarsePixels + ", " + leafPixels);
+        }
+        this.coarsePixels = coarsePixels;
+        this.depth = (int) Math.ceil(Math.log(coarsePixels / leafPixels) / Math.log(2));
+    }
+
+    // Writes each segment to out as two samples, the first only drawing from and the second only drawing to, so
+    // segments are never joined to one another. Returns false if abandoned because cancelled became true.
+    public boolean contour(ImplicitGrapher grapher, Viewport viewport, SampleBuffer out, BooleanSupplier cancelled) {
+        double cellWidth = coarsePixels * viewport.xPerPixel();
+        double cellHeight = coarsePixels * viewport.yPerPixel();
+        double left = Math.floor(viewport.minX() / cellWidth) * cellWidth;
+        double bottom = Math.floor(viewport.minY() / cellHeight) * cellHeight;
+        int columns = (int) Math.ceil((viewport.maxX() - left) / cellWidth);
+        int rows = (int) Math.ceil((viewport.maxY() - bottom) / cellHeight);
+
+        int bandCount = (rows + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+        SampleBuffer[] bands = new SampleBuffer[bandCount];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[bandCount];
+        for (int b = 0; b < bandCount; b++) {
+            int band = b;
+            tasks[b] = ForkJoinTask.adapt(() -> {
+                SampleBuffer segments = new SampleBuffer();
+                int firstRow = band * ROWS_PER_BAND;
+                int lastRow = Math.min(rows, firstRow + ROWS_PER_BAND);
+                contourBand(grapher, left, bottom, cellWidth, cellHeight, columns, firstRow, lastRow, segments,
+                        cancelled);
+                bands[band] = segments;
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+        if (cancelled.getAsBoolean()) return false;
+
+        for (SampleBuffer band : bands) {
+            out.append(band, 0, band.size());
+        }
+        return true;
+    }
+
+    private void contourBand(ImplicitGrapher grapher, double left, double bottom, double cellWidth, double cellHeight,
+                             int columns, int firstRow, int lastRow, SampleBuffer out, BooleanSupplier cancelled) {
+        double[] below = new double[columns + 1];
+        double[] above = new double[columns + 1];
+        double y0 = bottom + firstRow * cellHeight;
+        for (int i = 0; i <= columns; i++) {
+            below[i] = grapher.value(left + i * cellWidth, y0);
+        }
+
+        for (int row = firstRow; row < lastRow; row++) {
+            if (cancelled.getAsBoolean()) return;
+            double yLow = bottom + row * cellHeight;
+            double yHigh = yLow + cellHeight;
+            for (int i = 0; i <= columns; i++) {
+                above[i] = grapher.value(left + i * cellWidth, yHigh);
+            }
+            for (int i = 0; i < columns; i++) {
+                double xLow = left + i * cellWidth;
+                refine(grapher, xLow, yLow, xLow + cellWidth, yHigh, below[i], below[i + 1], above[i], above[i + 1],
+                        depth, out);
+            }
+            double[] swap = below;
+            below = above;
+            above = swap;
+        }
+    }
+
+    // v00 is the value at (x0, y0), v10 at (x1, y0), v01 at (x0, y1) and v11 at (x1, y1).
+    private void refine(ImplicitGrapher grapher, double x0, double y0, double x1, double y1,
+                        double v00, double v10, double v01, double v11, int levels, SampleBuffer out) {
+        double xm = 0.5 * (x0 + x1);
+        double ym = 0.5 * (y0 + y1);
+        double vc = grapher.value(xm, ym);
+        if (!mayCross(v00, v10, v01, v11, vc)) return;
+
+        if (levels == 0) {
+            emitLeaf(grapher, x0, y0, x1, y1, v00, v10, v01, v11, vc, out);
+            return;
+        }
+        double vBottom = grapher.value(xm, y0);
+        double vTop = grapher.value(xm, y1);
+        double vLeft = grapher.value(x0, ym);
+        double vRight = grapher.value(x1, ym);
+        refine(grapher, x0, y0, xm, ym, v00, vBottom, vLeft, vc, levels - 1, out);
+        refine(grapher, xm, y0, x1, ym, vBottom, v10, vc, vRight, levels - 1, out);
+        refine(grapher, x0, ym, xm, y1, vLeft, vc, v01, vTop, levels - 1, out);
+        refine(grapher, xm, ym, x1, y1, vc, vRight, vTop, v11, levels - 1, out);
+    }
+
+    // True if the values change sign, or if some are undefined so the edge of the domain needs a closer look.
+    private static boolean mayCross(double a, double b, double c, double d, double e) {
+        int finite = 0;
+        int positive = 0;
+        if (Double.isFinite(a)) { finite++; if (a > 0) positive++; }
+        if (Double.isFinite(b)) { finite++; if (b > 0) positive++; }
+        if (Double.isFinite(c)) { finite++; if (c > 0) positive++; }
+        if (Double.isFinite(d)) { finite++; if (d > 0) positive++; }
+        if (Double.isFinite(e)) { finite++; if (e > 0) positive++; }
+        if (finite == 0) return false;
+        return finite < 5 || (positive > 0 && positive < 5);
+    }
+
+    private static void emitLeaf(ImplicitGrapher grapher, double x0, double y0, double x1, double y1,
+                                 double v00, double v10, double v01, double v11, double vc, SampleBuffer out) {
+        if (!Double.isFinite(v00) || !Double.isFinite(v10) || !Double.isFinite(v01) || !Double.isFinite(v11)
+                || !Double.isFinite(vc)) {
+            return;
+        }
+        boolean p00 = v00 > 0;
+        boolean p10 = v10 > 0;
+        boolean p01 = v01 > 0;
+        boolean p11 = v11 > 0;
+        boolean bottom = p00 != p10;
+        boolean right = p10 != p11;
+        boolean top = p01 != p11;
+        boolean left = p00 != p01;
+
+        double bottomX = x0 + (x1 - x0) * v00 / (v00 - v10);
+        double rightY = y0 + (y1 - y0) * v10 / (v10 - v11);
+        double topX = x0 + (x1 - x0) * v01 / (v01 - v11);
+        double leftY = y0 + (y1 - y0) * v00 / (v00 - v01);
+        double bottomNear = Math.min(Math.abs(v00), Math.abs(v10));
+        double rightNear = Math.min(Math.abs(v10), Math.abs(v11));
+        double topNear = Math.min(Math.abs(v01), Math.abs(v11));
+        double leftNear = Math.min(Math.abs(v00), Math.abs(v01));
+
+        if (bottom && right && top && left) {
+            // Saddle: the centre decides which pair of opposite corners the contour separates.
+            if ((vc > 0) == p00) {
+                segment(grapher, out, bottomX, y0, bottomNear, x1, rightY, rightNear);
+                segment(grapher, out, topX, y1, topNear, x0, leftY, leftNear);
+            } else {
+                segment(grapher, out, x0, leftY, leftNear, bottomX, y0, bottomNear);
+                segment(grapher, out, x1, rightY, rightNear, topX, y1, topNear);
+            }
+        } else if (bottom && right) {
+            segment(grapher, out, bottomX, y0, bottomNear, x1, rightY, rightNear);
+        } else if (bottom && top) {
+            segment(grapher, out, bottomX, y0, bottomNear, topX, y1, topNear);
+        } else if (bottom && left) {
+            segment(grapher, out, x0, leftY, leftNear, bottomX, y0, bottomNear);
+        } else if (right && top) {
+            segment(grapher, out, x1, rightY, rightNear, topX, y1, topNear);
+        } else if (right && left) {
+            segment(grapher, out, x0, leftY, leftNear, x1, rightY, rightNear);
+        } else if (top && left) {
+            segment(grapher, out, topX, y1, topNear, x0, leftY, leftNear);
+        }
+    }
+
+    // Each end lies on an edge whose smaller corner value bounds how far from zero a real crossing can be. Near a
+    // pole such as 1/x=y the sign flips without passing through zero, and the middle of the segment is no closer
+    // to zero than the corners, so the segment is dropped.
+    private static void segment(ImplicitGrapher grapher, SampleBuffer out,
+                                double xa, double ya, double nearA, double xb, double yb, double nearB) {
+        double middle = grapher.value(0.5 * (xa + xb), 0.5 * (ya + yb));
+        if (!(Math.abs(middle) <= 0.5 * Math.max(nearA, nearB))) return;
+        out.add(xa, ya, SampleBuffer.DRAW_FROM);
+        out.add(xb, yb, SampleBuffer.DRAW_TO);
+    }
+}
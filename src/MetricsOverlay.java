@@ -0,0 +1,72 @@
+import java.awt.*;
+import java.util.List;
+import java.util.Locale;
+
+public class MetricsOverlay {
+    private static final int FPS_WINDOW = 60;
+    private static final int SLOWEST_CURVES = 3;
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    private final long[] frameTimes = new long[FPS_WINDOW];
+    private int frameIndex;
+    private int frameCount;
+    private boolean visible;
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    public void toggle() {
+        visible = !visible;
+    }
+
+    public void frameStarted(long nanos) {
+        frameTimes[frameIndex] = nanos;
+        frameIndex = (frameIndex + 1) % FPS_WINDOW;
+        if (frameCount < FPS_WINDOW) frameCount++;
+    }
+
+    public void paint(Graphics g) {
+        if (!visible) return;
+
+        RenderMetrics metrics = RenderMetrics.get();
+        LatencyHistogram frames = metrics.getFrames();
+        LatencyHistogram latency = metrics.getRenderLatency();
+        LatencyHistogram preview = metrics.getPreviewLatency();
+        List<RenderMetrics.CurveMetrics> slowest = metrics.getSlowestCurves(SLOWEST_CURVES);
+
+        String[] lines = new String[4 + slowest.size()];
+        lines[0] = String.format(Locale.ROOT, "%.1f fps", framesPerSecond());
+        lines[1] = String.format(Locale.ROOT, "frame %.2f ms  p99 %.2f ms", frames.getLastMillis(), frames.getPercentileMillis(99));
+        lines[2] = String.format(Locale.ROOT, "preview %.1f ms  p99 %.1f ms", preview.getLastMillis(), preview.getPercentileMillis(99));
+        lines[3] = String.format(Locale.ROOT, "update %.1f ms  p99 %.1f ms", latency.getLastMillis(), latency.getPercentileMillis(99));
+        for (int i = 0; i < slowest.size(); i++) {
+            RenderMetrics.CurveMetrics curve = slowest.get(i);
+            lines[4 + i] = String.format(Locale.ROOT, "%.2f ms %6d pts  %s",
+                    curve.lastCostNanos() / 1e6, curve.getLastSampleCount(), curve.getLabel());
+        }
+
+        g.setFont(FONT);
+        FontMetrics fontMetrics = g.getFontMetrics();
+        int lineHeight = fontMetrics.getHeight();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, fontMetrics.stringWidth(line));
+        }
+
+        g.setColor(BACKGROUND);
+        g.fillRect(4, 4, width + 8, lineHeight * lines.length + 6);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(lines[i], 8, 6 + fontMetrics.getAscent() + i * lineHeight);
+        }
+    }
+
+    private double framesPerSecond() {
+        if (frameCount < 2) return 0;
+        long newest = frameTimes[(frameIndex - 1 + FPS_WINDOW) % FPS_WINDOW];
+        long oldest = frameTimes[(frameIndex - frameCount + FPS_WINDOW) % FPS_WINDOW];
+        return newest == oldest ? 0 : (frameCount - 1) * 1e9 / (newest - oldest);
+    }
+}
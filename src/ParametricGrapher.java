@@ -10,9 +10,55 @@ public abstract class ParametricGrapher extends XYGrapher {
     public abstract double xValue(double t);
     public abstract double yValue(double t);
 
+    private Curve curve;
+
     public Coordinate getPoint(int pointNum) {
         double tL = tStart() + (pointNum * tInterval());
         if (tL > tEnd()) return null;
         return new Coordinate(xValue(tL), yValue(tL));
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getPoints(int firstPoint, double[] xs, double[] ys, byte[] flags, int offset, int count) {
+        double start = tStart();
+        double end = tEnd();
+        double interval = tInterval();
+
+        for (int i = 0; i < count; i++) {
+            double tL = start + ((firstPoint + i) * interval);
+            if (tL > end) return i;
+            xs[offset + i] = xValue(tL);
+            ys[offset + i] = yValue(tL);
+            flags[offset + i] = SampleBuffer.CONNECTED;
+        }
+        return count;
+    }
+
+    @Override
+    public Curve curve() {
+        if (curve == null) {
+            curve = new Curve() {
+                @Override
+                public double x(double t) {
+                    return xValue(t);
+                }
+
+                @Override
+                public double y(double t) {
+                    return yValue(t);
+                }
+            };
+        }
+        return curve;
+    }
+
+    @Override
+    public double curveStart(Viewport viewport) {
+        return tStart();
+    }
+
+    @Override
+    public double curveEnd(Viewport viewport) {
+        return tEnd();
+    }
+}
@@ -0,0 +1,112 @@
+import java.awt.geom.Path2D;
+
+// Reduces a sampled curve to at most four points per pixel column per run (entry, min, max, exit) and builds a
+// single Path2D holding every continuous run. Instances reuse their path and are not thread-safe.
+public class PolylineDecimator {
+    // Java2D rasterizes in float; pixel coordinates are clamped well inside that range. A segment from a visible
+    // point to the clamp bends by at most viewport height / LIMIT of its horizontal extent.
+    private static final double LIMIT = 1e5;
+
+    private final Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, 1024);
+
+    private boolean groupOpen;
+    private boolean groupStartsRun;
+    private long groupColumn;
+    private int groupCount;
+    private double entryX, entryY, exitX, exitY;
+    private double minX, minY, maxX, maxY;
+    private int minIndex, maxIndex, entryIndex, exitIndex;
+    private int emitted;
+
+    public Path2D decimate(SampleBuffer samples, Viewport viewport) {
+        path.reset();
+        emitted = 0;
+        groupOpen = false;
+
+        double[] xs = samples.xs();
+        double[] ys = samples.ys();
+        byte[] flags = samples.flags();
+        boolean previousDrawFrom = false;
+
+        for (int j = 0; j < samples.size(); j++) {
+            double px = viewport.toPixelX(xs[j]);
+            double py = viewport.toPixelY(ys[j]);
+            if (!Double.isFinite(px) || !Double.isFinite(py)) {
+                flush();
+                previousDrawFrom = false;
+                continue;
+            }
+            px = Math.max(-LIMIT, Math.min(LIMIT, px));
+            py = Math.max(-LIMIT, Math.min(LIMIT, py));
+
+            boolean connected = previousDrawFrom && (flags[j] & SampleBuffer.DRAW_TO) != 0;
+            long column = (long) Math.floor(px);
+            if (connected && groupOpen && column == groupColumn) {
+                extendGroup(j, px, py);
+            } else {
+                flush();
+                openGroup(j, column, px, py, !connected);
+            }
+            previousDrawFrom = (flags[j] & SampleBuffer.DRAW_FROM) != 0;
+        }
+        flush();
+        return path;
+    }
+
+    // Number of path vertices produced by the last call to decimate.
+    public int getEmittedPoints() {
+        return emitted;
+    }
+
+    private void openGroup(int index, long column, double px, double py, boolean startsRun) {
+        groupOpen = true;
+        groupStartsRun = startsRun;
+        groupColumn = column;
+        groupCount = 1;
+        entryX = exitX = minX = maxX = px;
+        entryY = exitY = minY = maxY = py;
+        entryIndex = exitIndex = minIndex = maxIndex = index;
+    }
+
+    private void extendGroup(int index, double px, double py) {
+        groupCount++;
+        exitX = px;
+        exitY = py;
+        exitIndex = index;
+        if (py < minY) {
+            minX = px;
+            minY = py;
+            minIndex = index;
+        }
+        if (py > maxY) {
+            maxX = px;
+            maxY = py;
+            maxIndex = index;
+        }
+    }
+
+    private void flush() {
+        if (!groupOpen) return;
+        groupOpen = false;
+
+        if (groupStartsRun) {
+            path.moveTo(entryX, entryY);
+        } else {
+            path.lineTo(entryX, entryY);
+        }
+        emitted++;
+        if (groupCount == 1) return;
+
+        boolean minFirst = minIndex < maxIndex;
+        emitInterior(minFirst ? minIndex : maxIndex, minFirst ? minX : maxX, minFirst ? minY : maxY);
+        emitInterior(minFirst ? maxIndex : minIndex, minFirst ? maxX : minX, minFirst ? maxY : minY);
+        path.lineTo(exitX, exitY);
+        emitted++;
+    }
+
+    private void emitInterior(int index, double px, double py) {
+        if (index == entryIndex || index == exitIndex) return;
+        path.lineTo(px, py);
+        emitted++;
+    }
+}
@@ -1,12 +1,115 @@
 public abstract class PolynomialGrapher extends FunctionGrapher {
+    // Sparse Horner only pays off when most coefficients are zero, e.g. y=x^200+1.
+    private static final int SPARSE_MIN_DEGREE = 16;
+    private static final int SPARSE_DENSITY = 4;
+
     abstract public double[] coefficients();
 
+    private volatile SparseTerms sparseTerms;
+
     public double yValue(double xValue) {
         double[] coefficientsL = coefficients();
-        double sum = 0;
-        for (int i = 0; i < coefficientsL.length; i++) {
-            sum += coefficientsL[i] * Math.pow(xValue, i);
+        SparseTerms sparse = sparseTerms(coefficientsL);
+        if (sparse != null) return sparse.evaluate(xValue);
+
+        int degree = coefficientsL.length - 1;
+        if (degree < 0) return 0;
+        double sum = coefficientsL[degree];
+        for (int i = degree - 1; i >= 0; i--) {
+            sum = sum * xValue + coefficientsL[i];
         }
         return sum;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void yValues(double[] xs, double[] out, int from, int to) {
+        double[] coefficientsL = coefficients();
+        SparseTerms sparse = sparseTerms(coefficientsL);
+        if (sparse != null) {
+            sparse.evaluate(xs, out, from, to);
+            return;
+        }
+
+        int degree = coefficientsL.length - 1;
+        double leading = degree < 0 ? 0 : coefficientsL[degree];
+        for (int i = from; i < to; i++) {
+            out[i] = leading;
+        }
+        // Coefficient-outer, point-inner keeps the hot loop a straight multiply-add over arrays that C2 can vectorize.
+        for (int k = degree - 1; k >= 0; k--) {
+            double c = coefficientsL[k];
+            for (int i = from; i < to; i++) {
+                out[i] = out[i] * xs[i] + c;
+            }
+        }
+    }
+
+    // Cached against the identity of the coefficients() array, which is expected not to be mutated in place.
+    private SparseTerms sparseTerms(double[] coefficientsL) {
+        SparseTerms cached = sparseTerms;
+        if (cached == null || cached.source != coefficientsL) {
+            cached = SparseTerms.of(coefficientsL);
+            sparseTerms = cached;
+        }
+        return cached.exponents == null ? null : cached;
+    }
+
+    private static final class SparseTerms {
+        final double[] source;
+        final int[] exponents;
+        final double[] coefficients;
+
+        private SparseTerms(double[] source, int[] exponents, double[] coefficients) {
+            this.source = source;
+            this.exponents = exponents;
+            this.coefficients = coefficients;
+        }
+
+        static SparseTerms of(double[] source) {
+            int nonZero = 0;
+            for (double c : source) {
+                if (c != 0) nonZero++;
+            }
+            if (source.length <= SPARSE_MIN_DEGREE || nonZero == 0 || nonZero * SPARSE_DENSITY > source.length) {
+                return new SparseTerms(source, null, null);
+            }
+
+            int[] exponents = new int[nonZero];
+            double[] coefficients = new double[nonZero];
+            int j = 0;
+            for (int i = source.length - 1; i >= 0; i--) {
+                if (source[i] != 0) {
+                    exponents[j] = i;
+                    coefficients[j] = source[i];
+                    j++;
+                }
+            }
+            return new SparseTerms(source, exponents, coefficients);
+        }
+
+        // Horner over the non-zero terms only: each gap between exponents costs O(log gap) multiplies.
+        double evaluate(double x) {
+            double sum = coefficients[0];
+            for (int j = 1; j < exponents.length; j++) {
+                sum = sum * power(x, exponents[j - 1] - exponents[j]) + coefficients[j];
+            }
+            return sum * power(x, exponents[exponents.length - 1]);
+        }
+
+        void evaluate(double[] xs, double[] out, int from, int to) {
+            for (int i = from; i < to; i++) {
+                out[i] = evaluate(xs[i]);
+            }
+        }
+
+        private static double power(double base, int exponent) {
+            double result = 1;
+            while (exponent > 0) {
+                if ((exponent & 1) != 0) result *= base;
+                base *= base;
+                exponent >>= 1;
+            }
+            return result;
+        }
+    }
+}
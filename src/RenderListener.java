@@ -0,0 +1,9 @@
+// Receives a render job's results on the event dispatch thread, and only while no newer job has been submitted.
+public interface RenderListener {
+    // Called first, with every curve that could be sampled within the frame budget; some may only be coarse previews,
+    // and curves that missed the budget are null.
+    void onPreview(RenderedCurve[] curves);
+
+    // Called afterwards for each curve that was left coarse or missing, once it is sampled in full.
+    void onCurveRefined(int index, RenderedCurve curve);
+}
@@ -0,0 +1,182 @@
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RenderMetrics implements RenderMetricsMXBean {
+    private static final RenderMetrics INSTANCE = new RenderMetrics();
+
+    private final LatencyHistogram frames = new LatencyHistogram();
+    private final LatencyHistogram renderLatency = new LatencyHistogram();
+    private final LatencyHistogram previewLatency = new LatencyHistogram();
+    private final LatencyHistogram parses = new LatencyHistogram();
+    private final LatencyHistogram sampling = new LatencyHistogram();
+    private final LatencyHistogram rasterization = new LatencyHistogram();
+    private final Map<String, CurveMetrics> curves = new ConcurrentHashMap<>();
+
+    private RenderMetrics() {
+    }
+
+    public static RenderMetrics get() {
+        return INSTANCE;
+    }
+
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName("GraphingCalculator:type=RenderMetrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not register render metrics with JMX: " + e);
+        }
+    }
+
+    public void recordParse(String label, long nanos) {
+        parses.record(nanos);
+        if (label != null) curve(label).lastParseNanos = nanos;
+    }
+
+    public void recordSampling(String label, int sampleCount, long nanos) {
+        sampling.record(nanos);
+        if (label == null) return;
+        CurveMetrics metrics = curve(label);
+        metrics.lastSampleCount = sampleCount;
+        metrics.lastSampleNanos = nanos;
+        metrics.totalSampleNanos.add(nanos);
+    }
+
+    public void recordRasterization(String label, long nanos) {
+        rasterization.record(nanos);
+        if (label == null) return;
+        CurveMetrics metrics = curve(label);
+        metrics.lastRasterNanos = nanos;
+        metrics.totalRasterNanos.add(nanos);
+    }
+
+    public void recordFrame(long nanos) {
+        frames.record(nanos);
+    }
+
+    public void recordRenderLatency(long nanos) {
+        renderLatency.record(nanos);
+    }
+
+    // Time from a change to the first frame showing every curve, some perhaps still coarse.
+    public void recordPreviewLatency(long nanos) {
+        previewLatency.record(nanos);
+    }
+
+    // Drops per-curve entries for equations that are no longer graphed.
+    public void retainCurves(Collection<String> labels) {
+        Set<String> keep = new HashSet<>(labels);
+        curves.keySet().retainAll(keep);
+    }
+
+    public LatencyHistogram getFrames() { return frames; }
+
+    public LatencyHistogram getRenderLatency() { return renderLatency; }
+
+    public LatencyHistogram getPreviewLatency() { return previewLatency; }
+
+    public LatencyHistogram getSampling() { return sampling; }
+
+    // Curves ordered by the cost of their most recent sample and rasterize pass, slowest first.
+    public List<CurveMetrics> getSlowestCurves(int limit) {
+        List<CurveMetrics> sorted = new ArrayList<>(curves.values());
+        sorted.sort((a, b) -> Long.compare(b.lastCostNanos(), a.lastCostNanos()));
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    @Override
+    public long getFrameCount() { return frames.getCount(); }
+
+    @Override
+    public double getMeanFrameMillis() { return frames.getMeanMillis(); }
+
+    @Override
+    public double getP99FrameMillis() { return frames.getPercentileMillis(99); }
+
+    @Override
+    public double getMeanRenderLatencyMillis() { return renderLatency.getMeanMillis(); }
+
+    @Override
+    public double getP99RenderLatencyMillis() { return renderLatency.getPercentileMillis(99); }
+
+    @Override
+    public double getMeanPreviewLatencyMillis() { return previewLatency.getMeanMillis(); }
+
+    @Override
+    public double getP99PreviewLatencyMillis() { return previewLatency.getPercentileMillis(99); }
+
+    @Override
+    public long getParseCount() { return parses.getCount(); }
+
+    @Override
+    public double getMeanParseMillis() { return parses.getMeanMillis(); }
+
+    @Override
+    public double getMeanRasterizeMillis() { return rasterization.getMeanMillis(); }
+
+    @Override
+    public String[] getCurveSummaries() {
+        List<CurveMetrics> sorted = getSlowestCurves(Integer.MAX_VALUE);
+        String[] summaries = new String[sorted.size()];
+        for (int i = 0; i < summaries.length; i++) {
+            summaries[i] = sorted.get(i).toString();
+        }
+        return summaries;
+    }
+
+    @Override
+    public void reset() {
+        frames.reset();
+        renderLatency.reset();
+        previewLatency.reset();
+        parses.reset();
+        sampling.reset();
+        rasterization.reset();
+        curves.clear();
+    }
+
+    private CurveMetrics curve(String label) {
+        return curves.computeIfAbsent(label, CurveMetrics::new);
+    }
+
+    public static final class CurveMetrics {
+        private final String label;
+        private final LongAdder totalSampleNanos = new LongAdder();
+        private final LongAdder totalRasterNanos = new LongAdder();
+        private volatile long lastParseNanos;
+        private volatile long lastSampleNanos;
+        private volatile long lastRasterNanos;
+        private volatile int lastSampleCount;
+
+        CurveMetrics(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+
+        public int getLastSampleCount() { return lastSampleCount; }
+
+        public long lastCostNanos() {
+            return lastSampleNanos + lastRasterNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %d samples, parse %.2f ms, sample %.2f ms, raster %.2f ms "
+                            + "(total sample %.1f ms, raster %.1f ms)",
+                    label, lastSampleCount, lastParseNanos / 1e6, lastSampleNanos / 1e6, lastRasterNanos / 1e6,
+                    totalSampleNanos.sum() / 1e6, totalRasterNanos.sum() / 1e6);
+        }
+    }
+}
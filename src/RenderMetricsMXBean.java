@@ -0,0 +1,14 @@
+public interface RenderMetricsMXBean {
+    long getFrameCount();
+    double getMeanFrameMillis();
+    double getP99FrameMillis();
+    double getMeanRenderLatencyMillis();
+    double getP99RenderLatencyMillis();
+    double getMeanPreviewLatencyMillis();
+    double getP99PreviewLatencyMillis();
+    long getParseCount();
+    double getMeanParseMillis();
+    double getMeanRasterizeMillis();
+    String[] getCurveSummaries();
+    void reset();
+}
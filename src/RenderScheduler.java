@@ -0,0 +1,147 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// Samples curves off the EDT. A change first shows within about a frame: curves the cache can serve are finished,
+// and the rest are drawn from a coarse pass, then replaced one at a time as their full sampling completes.
+public class RenderScheduler {
+    // How long after a change the preview may take, and how many pixels wide its sampling grid is.
+    static final long PREVIEW_BUDGET_NANOS = 16_000_000L;
+    static final int PREVIEW_PIXELS = 8;
+
+    private final ForkJoinPool pool;
+    private final SampleCache cache;
+    // Previews never use interval plotting, which at a coarse grid would only draw scattered bars.
+    private final AdaptiveSampler coarse = new AdaptiveSampler();
+    private final AtomicLong generation = new AtomicLong();
+    private ForkJoinTask<?> currentJob;
+    private boolean showFeatures;
+
+    public RenderScheduler(AdaptiveSampler sampler) {
+        this(sampler, Runtime.getRuntime().availableProcessors());
+    }
+
+    public RenderScheduler(AdaptiveSampler sampler, int parallelism) {
+        this.cache = new SampleCache(sampler);
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    // Must be called on the EDT; the listener is called on the EDT only while no newer job has been submitted.
+    public void submit(XYGrapher[] graphers, Viewport viewport, RenderListener listener) {
+        long jobGeneration = generation.incrementAndGet();
+        if (currentJob != null) currentJob.cancel(false);
+
+        Color[] colors = new Color[graphers.length];
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < graphers.length; i++) {
+            colors[i] = graphers[i].getGraphColor();
+            if (graphers[i].getLabel() != null) labels.add(graphers[i].getLabel());
+        }
+        RenderMetrics.get().retainCurves(labels);
+
+        long submitted = System.nanoTime();
+        boolean features = showFeatures;
+        currentJob = pool.submit(() -> render(jobGeneration, graphers, colors, viewport, features, listener,
+                submitted));
+    }
+
+    // Whether jobs also find the roots and turning points of function graphs; takes effect from the next submit.
+    public void setShowFeatures(boolean showFeatures) {
+        this.showFeatures = showFeatures;
+    }
+
+    public SampleCache getCache() {
+        return cache;
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+        if (currentJob != null) currentJob.cancel(false);
+    }
+
+    public void shutdown() {
+        cancel();
+        pool.shutdownNow();
+    }
+
+    private static CurveFeatures findFeatures(XYGrapher grapher, Viewport viewport) {
+        DifferentiableCurve curve = grapher instanceof FunctionGrapher ? grapher.differentiableCurve() : null;
+        return curve != null ? CurveFeatures.find(curve, viewport) : null;
+    }
+
+    // Curves with reusable cached samples are finished within the frame budget; the rest get a coarse preview, if
+    // one can be sampled in time, and are then sampled in full and streamed to the listener one by one.
+    private void render(long jobGeneration, XYGrapher[] graphers, Color[] colors, Viewport viewport, boolean features,
+                        RenderListener listener, long submitted) {
+        BooleanSupplier cancelled = () -> generation.get() != jobGeneration;
+        BooleanSupplier overBudget = () -> cancelled.getAsBoolean() || System.nanoTime() - submitted > PREVIEW_BUDGET_NANOS;
+        Viewport coarseView = viewport.coarsen(PREVIEW_PIXELS);
+        RenderedCurve[] preview = new RenderedCurve[graphers.length];
+        boolean[] finished = new boolean[graphers.length];
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[graphers.length];
+        for (int i = 0; i < graphers.length; i++) {
+            int index = i;
+            tasks[i] = ForkJoinTask.adapt(() -> {
+                XYGrapher grapher = graphers[index];
+                if (cache.hasSamplesFor(grapher, viewport) || !hasPreview(grapher)) {
+                    preview[index] = sample(grapher, colors[index], viewport, features, cancelled);
+                    finished[index] = true;
+                    return;
+                }
+                SampleBuffer samples = new SampleBuffer();
+                if (coarse.sample(grapher, coarseView, samples, overBudget)) {
+                    preview[index] = new RenderedCurve(grapher, colors[index], samples);
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        if (cancelled.getAsBoolean()) return;
+        SwingUtilities.invokeLater(() -> {
+            if (cancelled.getAsBoolean()) return;
+            listener.onPreview(preview);
+            RenderMetrics.get().recordPreviewLatency(System.nanoTime() - submitted);
+        });
+
+        int refined = 0;
+        for (int i = 0; i < graphers.length; i++) {
+            if (finished[i]) continue;
+            int index = i;
+            tasks[refined++] = ForkJoinTask.adapt(() -> {
+                RenderedCurve curve = sample(graphers[index], colors[index], viewport, features, cancelled);
+                if (curve == null) return;
+                SwingUtilities.invokeLater(() -> {
+                    if (!cancelled.getAsBoolean()) listener.onCurveRefined(index, curve);
+                });
+            });
+        }
+        ForkJoinTask.invokeAll(Arrays.asList(tasks).subList(0, refined));
+
+        if (cancelled.getAsBoolean()) return;
+        SwingUtilities.invokeLater(() -> {
+            if (!cancelled.getAsBoolean()) RenderMetrics.get().recordRenderLatency(System.nanoTime() - submitted);
+        });
+    }
+
+    // Returns null if cancelled.
+    private RenderedCurve sample(XYGrapher grapher, Color color, Viewport viewport, boolean features,
+                                 BooleanSupplier cancelled) {
+        long start = System.nanoTime();
+        SampleBuffer samples = cache.sample(grapher, viewport, cancelled);
+        if (samples == null) return null;
+        RenderMetrics.get().recordSampling(grapher.getLabel(), samples.size(), System.nanoTime() - start);
+        return new RenderedCurve(grapher, color, samples, features ? findFeatures(grapher, viewport) : null);
+    }
+
+    // Fixed-step graphers sample the same points at any resolution, so a preview would only repeat the work.
+    private static boolean hasPreview(XYGrapher grapher) {
+        return grapher instanceof ImplicitGrapher || grapher.curve() != null;
+    }
+}
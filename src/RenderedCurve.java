@@ -0,0 +1,28 @@
+import java.awt.*;
+
+public class RenderedCurve {
+    private final XYGrapher grapher;
+    private final Color color;
+    private final SampleBuffer samples;
+    private final CurveFeatures features;
+
+    public RenderedCurve(XYGrapher grapher, Color color, SampleBuffer samples) {
+        this(grapher, color, samples, null);
+    }
+
+    // Features are the roots and turning points to mark, or null for none.
+    public RenderedCurve(XYGrapher grapher, Color color, SampleBuffer samples, CurveFeatures features) {
+        this.grapher = grapher;
+        this.color = color;
+        this.samples = samples;
+        this.features = features;
+    }
+
+    public XYGrapher getGrapher() { return grapher; }
+
+    public Color getColor() { return color; }
+
+    public SampleBuffer getSamples() { return samples; }
+
+    public CurveFeatures getFeatures() { return features; }
+}
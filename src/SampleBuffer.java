@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+public class SampleBuffer {
+    public static final byte DRAW_FROM = 1;
+    public static final byte DRAW_TO = 2;
+    public static final byte CONNECTED = DRAW_FROM | DRAW_TO;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private double[] xs;
+    private double[] ys;
+    private byte[] flags;
+    private int size;
+
+    public SampleBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public SampleBuffer(int capacity) {
+        xs = new double[capacity];
+        ys = new double[capacity];
+        flags = new byte[capacity];
+    }
+
+    // Adopts the arrays without copying; they must hold at least size entries.
+    public static SampleBuffer wrap(double[] xs, double[] ys, byte[] flags, int size) {
+        SampleBuffer buffer = new SampleBuffer(0);
+        buffer.xs = xs;
+        buffer.ys = ys;
+        buffer.flags = flags;
+        buffer.size = size;
+        return buffer;
+    }
+
+    public void sample(XYGrapher grapher) {
+        size = 0;
+        while (true) {
+            ensureCapacity(size + INITIAL_CAPACITY);
+            int requested = xs.length - size;
+            int filled = grapher.getPoints(size, xs, ys, flags, size, requested);
+            size += filled;
+            if (filled < requested) return;
+        }
+    }
+
+    public void add(double x, double y, byte flag) {
+        ensureCapacity(size + 1);
+        xs[size] = x;
+        ys[size] = y;
+        flags[size] = flag;
+        size++;
+    }
+
+    public void append(SampleBuffer source, int from, int to) {
+        int count = to - from;
+        if (count <= 0) return;
+        ensureCapacity(size + count);
+        System.arraycopy(source.xs, from, xs, size, count);
+        System.arraycopy(source.ys, from, ys, size, count);
+        System.arraycopy(source.flags, from, flags, size, count);
+        size += count;
+    }
+
+    public void truncate(int newSize) {
+        if (newSize < size) size = Math.max(0, newSize);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity <= xs.length) return;
+        int newCapacity = Math.max(capacity, xs.length * 2);
+        xs = Arrays.copyOf(xs, newCapacity);
+        ys = Arrays.copyOf(ys, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+    }
+
+    public int size() { return size; }
+
+    // Approximate heap footprint of the backing arrays.
+    public long memoryBytes() { return (long) xs.length * (Double.BYTES * 2 + 1); }
+
+    public double[] xs() { return xs; }
+
+    public double[] ys() { return ys; }
+
+    public byte[] flags() { return flags; }
+
+    public static byte flag(boolean drawFrom, boolean drawTo) {
+        return (byte) ((drawFrom ? DRAW_FROM : 0) | (drawTo ? DRAW_TO : 0));
+    }
+}
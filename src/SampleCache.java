@@ -0,0 +1,306 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Least-recently-used cache of sampled curves, bounded by entry count and by the memory the sample arrays hold.
+// Entries are keyed by the grapher's canonical form and the sampler tolerance, so equal equations in different boxes,
+// and an equation that is hidden and shown again, reuse the same samples while the view allows it. Guaranteed interval
+// plots are exact to the pixel and are kept under a tolerance of zero, apart from the sampled curves.
+public class SampleCache {
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+
+    // Samples are taken against a viewport this many screens larger on each side, so small pans stay valid.
+    private static final double SAMPLING_MARGIN = 1.0;
+    // Function samples further than this many screens outside the view are dropped when a strip is added.
+    private static final double KEEP_MARGIN = 1.0;
+    // Samples taken at a finer scale stay within tolerance when zooming out, up to this factor.
+    private static final double MAX_COARSENING = 4;
+    private static final double SCALE_EPSILON = 1e-9;
+
+    private final AdaptiveSampler sampler;
+    private final long maxBytes;
+    private final int maxEntries;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Samples restored from a saved session, only read in when their curve is first drawn.
+    private final Map<Key, StoredSamples> stored = new HashMap<>();
+    private long bytes;
+
+    public SampleCache(AdaptiveSampler sampler) {
+        this(sampler, DEFAULT_MAX_BYTES, DEFAULT_MAX_ENTRIES);
+    }
+
+    public SampleCache(AdaptiveSampler sampler, long maxBytes, int maxEntries) {
+        this.sampler = sampler;
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+    }
+
+    public AdaptiveSampler getSampler() {
+        return sampler;
+    }
+
+    // Returns null if cancelled. The returned buffer may be shared with later frames and must not be modified.
+    public SampleBuffer sample(XYGrapher grapher, Viewport view, BooleanSupplier cancelled) {
+        UnaryOperator<Interval> enclosure = sampler.isGuaranteed() ? grapher.intervalFunction() : null;
+        Key key = key(grapher, enclosure);
+        Entry entry = lookup(key);
+        boolean sampled = grapher.curve() != null;
+        boolean function = grapher instanceof FunctionGrapher;
+
+        Entry updated;
+        if (enclosure != null) {
+            updated = entry != null && entry.reusableFor(view, false) ? entry : enclose(grapher, enclosure, view, cancelled);
+        } else if (grapher instanceof ImplicitGrapher || grapher instanceof DataSeriesGrapher) {
+            updated = entry != null && entry.reusableFor(view, false) ? entry : sampleClip(grapher, view, cancelled);
+        } else if (!sampled) {
+            updated = entry != null ? entry : sampleFixedStep(grapher);
+        } else if (entry != null && entry.reusableFor(view, function)) {
+            updated = function ? extend(grapher, entry, view, cancelled) : entry;
+        } else {
+            updated = resample(grapher, view, function, cancelled);
+        }
+
+        if (updated == null) return null;
+        if (updated != entry) store(key, updated);
+        return updated.samples;
+    }
+
+    // Whether sample() can reuse cached samples for this view, at worst after sampling the strips that scrolled in.
+    public boolean hasSamplesFor(XYGrapher grapher, Viewport view) {
+        UnaryOperator<Interval> enclosure = sampler.isGuaranteed() ? grapher.intervalFunction() : null;
+        Entry entry = lookup(key(grapher, enclosure));
+        boolean function = enclosure == null && grapher instanceof FunctionGrapher;
+        return entry != null && entry.reusableFor(view, function);
+    }
+
+    private Key key(XYGrapher grapher, UnaryOperator<Interval> enclosure) {
+        return Key.of(grapher, enclosure != null ? 0 : sampler.getTolerance());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long memoryBytes() {
+        return bytes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        stored.clear();
+        bytes = 0;
+    }
+
+    // Offers samples from an earlier session; they replace nothing already cached and cost nothing until used.
+    public synchronized void preload(StoredSamples samples) {
+        stored.put(new Key(samples.canonicalForm, samples.tolerance), samples);
+    }
+
+    // The cached samples of the given curves, most recently used last.
+    public synchronized List<StoredSamples> export(Set<String> canonicalForms) {
+        List<StoredSamples> exported = new ArrayList<>();
+        for (Map.Entry<Key, Entry> mapping : entries.entrySet()) {
+            Entry entry = mapping.getValue();
+            if (!canonicalForms.contains(mapping.getKey().curve) || entry.clip == null) continue;
+            SampleBuffer samples = entry.samples;
+            exported.add(new StoredSamples((String) mapping.getKey().curve, mapping.getKey().tolerance, entry.clip,
+                    entry.tLow, entry.tHigh, () -> samples));
+        }
+        return exported;
+    }
+
+    private synchronized Entry lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            StoredSamples restored = stored.remove(key);
+            if (restored != null) {
+                entry = new Entry(restored.clip, restored.tLow, restored.tHigh, restored.samples.get());
+                store(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    // Sampling runs outside the lock, so two workers may race to store the same curve; the last one wins.
+    private synchronized void store(Key key, Entry entry) {
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null) bytes -= replaced.bytes;
+        bytes += entry.bytes;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((bytes > maxBytes || entries.size() > maxEntries) && entries.size() > 1) {
+            Entry evicted = eldest.next();
+            bytes -= evicted.bytes;
+            eldest.remove();
+        }
+    }
+
+    private Entry sampleFixedStep(XYGrapher grapher) {
+        SampleBuffer samples = new SampleBuffer();
+        samples.sample(grapher);
+        return new Entry(null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, samples);
+    }
+
+    // Contours and decimated data depend on the whole view, so they are redone for the expanded clip as one piece.
+    private Entry sampleClip(XYGrapher grapher, Viewport view, BooleanSupplier cancelled) {
+        Viewport clip = view.expand(SAMPLING_MARGIN);
+        SampleBuffer samples = new SampleBuffer();
+        if (!sampler.sample(grapher, clip, samples, cancelled)) return null;
+        return new Entry(clip, clip.minX(), clip.maxX(), samples);
+    }
+
+    private Entry enclose(XYGrapher grapher, UnaryOperator<Interval> function, Viewport view,
+                          BooleanSupplier cancelled) {
+        Viewport clip = view.expand(SAMPLING_MARGIN);
+        SampleBuffer samples = new SampleBuffer();
+        if (!sampler.enclose(grapher, function, clip, samples, cancelled)) return null;
+        return new Entry(clip, clip.minX(), clip.maxX(), samples);
+    }
+
+    private Entry resample(XYGrapher grapher, Viewport view, boolean function, BooleanSupplier cancelled) {
+        Viewport clip = view.expand(SAMPLING_MARGIN);
+        Curve curve = AdaptiveSampler.curve(grapher, clip);
+        SampleBuffer samples = new SampleBuffer();
+        double tStart = function ? view.minX() : grapher.curveStart(view);
+        double tEnd = function ? view.maxX() : grapher.curveEnd(view);
+        int segments = AdaptiveSampler.initialSegments(grapher, tStart, tEnd, view);
+        if (!sampler.sample(curve, tStart, tEnd, segments, clip, samples, cancelled)) return null;
+        return new Entry(clip, tStart, tEnd, samples);
+    }
+
+    // Reuses the cached x-interval and only samples the strips that scrolled into view.
+    // Strips are evaluated at the precision of the cached scale, which may be finer than the view's.
+    private Entry extend(XYGrapher grapher, Entry entry, Viewport view, BooleanSupplier cancelled) {
+        double low = view.minX();
+        double high = view.maxX();
+        if (low >= entry.tLow && high <= entry.tHigh) return entry;
+
+        SampleBuffer cached = entry.samples;
+        double[] xs = cached.xs();
+        int from = 0;
+        int to = cached.size();
+        double keepLow = low - KEEP_MARGIN * view.xRange();
+        double keepHigh = high + KEEP_MARGIN * view.xRange();
+        while (from + 1 < to && xs[from + 1] <= keepLow) from++;
+        while (to - 1 > from + 1 && xs[to - 2] >= keepHigh) to--;
+
+        Curve curve = AdaptiveSampler.curve(grapher, entry.clip);
+        SampleBuffer merged = new SampleBuffer(to - from + 256);
+        double tLow = xs[from];
+        double tHigh = xs[to - 1];
+        if (low < tLow) {
+            if (!sampleStrip(grapher, curve, entry.clip, low, tLow, merged, cancelled)) return null;
+            from++;
+            tLow = low;
+        }
+        merged.append(cached, from, to);
+        if (high > tHigh) {
+            merged.truncate(merged.size() - 1);
+            if (!sampleStrip(grapher, curve, entry.clip, tHigh, high, merged, cancelled)) return null;
+            tHigh = high;
+        }
+        return new Entry(entry.clip, tLow, tHigh, merged);
+    }
+
+    private boolean sampleStrip(XYGrapher grapher, Curve curve, Viewport clip, double tStart, double tEnd,
+                                SampleBuffer out, BooleanSupplier cancelled) {
+        Viewport strip = clip.withXRange(tStart, tEnd);
+        int segments = AdaptiveSampler.initialSegments(grapher, tStart, tEnd, strip);
+        return sampler.sample(curve, tStart, tEnd, segments, strip, out, cancelled);
+    }
+
+    private static final class Entry {
+        final Viewport clip;
+        final double tLow;
+        final double tHigh;
+        final SampleBuffer samples;
+        final long bytes;
+
+        Entry(Viewport clip, double tLow, double tHigh, SampleBuffer samples) {
+            this.clip = clip;
+            this.tLow = tLow;
+            this.tHigh = tHigh;
+            this.samples = samples;
+            this.bytes = samples.memoryBytes();
+        }
+
+        boolean reusableFor(Viewport view, boolean function) {
+            if (clip == null) return true;
+            if (!sameOrFinerScale(clip.xPerPixel(), view.xPerPixel())) return false;
+            if (!sameOrFinerScale(clip.yPerPixel(), view.yPerPixel())) return false;
+            if (!clip.containsY(view)) return false;
+            if (function) return tLow <= view.maxX() && tHigh >= view.minX();
+            return clip.contains(view);
+        }
+
+        private static boolean sameOrFinerScale(double cached, double requested) {
+            return cached <= requested * (1 + SCALE_EPSILON) && cached * MAX_COARSENING >= requested;
+        }
+    }
+
+    public static final class StoredSamples {
+        private final String canonicalForm;
+        private final double tolerance;
+        private final Viewport clip;
+        private final double tLow;
+        private final double tHigh;
+        private final Supplier<SampleBuffer> samples;
+
+        public StoredSamples(String canonicalForm, double tolerance, Viewport clip, double tLow, double tHigh,
+                             Supplier<SampleBuffer> samples) {
+            this.canonicalForm = canonicalForm;
+            this.tolerance = tolerance;
+            this.clip = clip;
+            this.tLow = tLow;
+            this.tHigh = tHigh;
+            this.samples = samples;
+        }
+
+        public String getCanonicalForm() { return canonicalForm; }
+
+        public double getTolerance() { return tolerance; }
+
+        public Viewport getClip() { return clip; }
+
+        public double getTLow() { return tLow; }
+
+        public double getTHigh() { return tHigh; }
+
+        public SampleBuffer getSamples() { return samples.get(); }
+    }
+
+    // Graphers without a canonical form are only equal to themselves.
+    private static final class Key {
+        final Object curve;
+        final double tolerance;
+
+        Key(Object curve, double tolerance) {
+            this.curve = curve;
+            this.tolerance = tolerance;
+        }
+
+        static Key of(XYGrapher grapher, double tolerance) {
+            return new Key(grapher.getCanonicalForm() != null ? grapher.getCanonicalForm() : grapher, tolerance);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return curve.equals(other.curve) && Double.compare(tolerance, other.tolerance) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * curve.hashCode() + Double.hashCode(tolerance);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Everything needed to bring the calculator back as it was: the sidebar's equations in order, the visible window,
+// and optionally samples that were already computed for them.
+public class Session {
+    private final Viewport viewport;
+    private final List<Equation> equations;
+    private final List<SampleCache.StoredSamples> samples;
+
+    public Session(Viewport viewport, List<Equation> equations, List<SampleCache.StoredSamples> samples) {
+        this.viewport = viewport;
+        this.equations = Collections.unmodifiableList(new ArrayList<>(equations));
+        this.samples = Collections.unmodifiableList(new ArrayList<>(samples));
+    }
+
+    public Viewport getViewport() { return viewport; }
+
+    public List<Equation> getEquations() { return equations; }
+
+    public List<SampleCache.StoredSamples> getSamples() { return samples; }
+
+    public static final class Equation {
+        private final String text;
+        private final Color color;
+        private final boolean graphed;
+
+        public Equation(String text, Color color, boolean graphed) {
+            this.text = text;
+            this.color = color;
+            this.graphed = graphed;
+        }
+
+        public String getText() { return text; }
+
+        public Color getColor() { return color; }
+
+        public boolean isGraphed() { return graphed; }
+    }
+}
@@ -0,0 +1,206 @@
+import java.awt.*;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Reads and writes sessions. The binary format is big-endian:
+//
+//   int magic 'GCS1', short version
+//   viewport: double minX, minY, xRange, yRange; int pixelsWide, pixelsHigh
+//   int equation count, then per equation: int ARGB colour, byte graphed, string text
+//   int sample count, then per curve: string canonical form, double tolerance, viewport clip, double tLow, tHigh,
+//       int size, double[size] xs, double[size] ys, byte[size] flags
+//
+// where a string is an int byte length followed by UTF-8. Files are read through a memory map, and sample arrays
+// are only copied out when the cache first asks for them, so opening a large session touches little of the file.
+public final class SessionFile {
+    private static final int MAGIC = 0x47435331;
+    private static final short VERSION = 1;
+
+    private SessionFile() {
+    }
+
+    // Writes to a temporary file first so a failed save never leaves a truncated session behind.
+    public static void write(Path file, Session session) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                writeViewport(out, session.getViewport());
+
+                out.writeInt(session.getEquations().size());
+                for (Session.Equation equation : session.getEquations()) {
+                    out.writeInt(equation.getColor().getRGB());
+                    out.writeByte(equation.isGraphed() ? 1 : 0);
+                    writeString(out, equation.getText());
+                }
+
+                out.writeInt(session.getSamples().size());
+                for (SampleCache.StoredSamples stored : session.getSamples()) {
+                    writeString(out, stored.getCanonicalForm());
+                    out.writeDouble(stored.getTolerance());
+                    writeViewport(out, stored.getClip());
+                    out.writeDouble(stored.getTLow());
+                    out.writeDouble(stored.getTHigh());
+                    writeSamples(out, stored.getSamples());
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static Session read(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Session file too large: " + file);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a session file: " + file);
+            short version = buffer.getShort();
+            if (version != VERSION) throw new IOException("Unsupported session version " + version + ": " + file);
+            Viewport viewport = readViewport(buffer);
+
+            // Each equation holds at least a colour, a flag and a string length.
+            int equationCount = readCount(buffer, Integer.BYTES + 1 + Integer.BYTES, file);
+            List<Session.Equation> equations = new ArrayList<>(equationCount);
+            for (int i = 0; i < equationCount; i++) {
+                Color color = new Color(buffer.getInt(), true);
+                boolean graphed = buffer.get() != 0;
+                equations.add(new Session.Equation(readString(buffer, file), color, graphed));
+            }
+
+            // Each stored curve holds at least a string length, the tolerance, the clip, the t range and a size.
+            int sampleCount = readCount(buffer, Integer.BYTES + Double.BYTES * 7 + Integer.BYTES * 3, file);
+            List<SampleCache.StoredSamples> samples = new ArrayList<>(sampleCount);
+            for (int i = 0; i < sampleCount; i++) {
+                String canonicalForm = readString(buffer, file);
+                double tolerance = buffer.getDouble();
+                Viewport clip = readViewport(buffer);
+                double tLow = buffer.getDouble();
+                double tHigh = buffer.getDouble();
+                int size = readCount(buffer, Double.BYTES * 2 + 1, file);
+                int offset = buffer.position();
+                buffer.position(offset + size * (Double.BYTES * 2 + 1));
+                samples.add(new SampleCache.StoredSamples(canonicalForm, tolerance, clip, tLow, tHigh,
+                        () -> readSamples(buffer, offset, size)));
+            }
+            return new Session(viewport, equations, samples);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt session file: " + file, e);
+        }
+    }
+
+    // A human-readable copy of the equations and window for other tools; samples are not included.
+    public static void writeJson(Path file, Session session) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            Viewport viewport = session.getViewport();
+            out.write(String.format(Locale.ROOT,
+                    "{\n  \"viewport\": {\"minX\": %s, \"minY\": %s, \"xRange\": %s, \"yRange\": %s},\n",
+                    viewport.minX(), viewport.minY(), viewport.xRange(), viewport.yRange()));
+            out.write("  \"equations\": [");
+            List<Session.Equation> equations = session.getEquations();
+            for (int i = 0; i < equations.size(); i++) {
+                Session.Equation equation = equations.get(i);
+                out.write(i == 0 ? "\n" : ",\n");
+                out.write(String.format(Locale.ROOT, "    {\"text\": %s, \"color\": \"#%06x\", \"graphed\": %b}",
+                        jsonString(equation.getText()), equation.getColor().getRGB() & 0xFFFFFF, equation.isGraphed()));
+            }
+            out.write(equations.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+        }
+    }
+
+    private static void writeViewport(DataOutputStream out, Viewport viewport) throws IOException {
+        out.writeDouble(viewport.minX());
+        out.writeDouble(viewport.minY());
+        out.writeDouble(viewport.xRange());
+        out.writeDouble(viewport.yRange());
+        out.writeInt(viewport.pixelsWide());
+        out.writeInt(viewport.pixelsHigh());
+    }
+
+    private static Viewport readViewport(ByteBuffer buffer) {
+        double minX = buffer.getDouble();
+        double minY = buffer.getDouble();
+        double xRange = buffer.getDouble();
+        double yRange = buffer.getDouble();
+        return new Viewport(minX, minY, xRange, yRange, buffer.getInt(), buffer.getInt());
+    }
+
+    private static void writeSamples(DataOutputStream out, SampleBuffer samples) throws IOException {
+        int size = samples.size();
+        ByteBuffer bytes = ByteBuffer.allocate(size * (Double.BYTES * 2 + 1));
+        bytes.asDoubleBuffer().put(samples.xs(), 0, size).put(samples.ys(), 0, size);
+        bytes.position(size * Double.BYTES * 2);
+        bytes.put(samples.flags(), 0, size);
+        out.writeInt(size);
+        out.write(bytes.array());
+    }
+
+    private static SampleBuffer readSamples(ByteBuffer buffer, int offset, int size) {
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        byte[] flags = new byte[size];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.asDoubleBuffer().get(xs).get(ys);
+        view.position(offset + size * Double.BYTES * 2);
+        view.get(flags);
+        return SampleBuffer.wrap(xs, ys, flags, size);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, Path file) throws IOException {
+        byte[] bytes = new byte[readCount(buffer, 1, file)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Reads a count of items of at least bytesEach bytes, checking that they can fit in the rest of the file so a
+    // corrupt count cannot ask for a huge allocation.
+    private static int readCount(ByteBuffer buffer, int bytesEach, Path file) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / bytesEach) {
+            throw new IOException("Corrupt session file, count " + count + " overruns the file: " + file);
+        }
+        return count;
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
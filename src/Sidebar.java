@@ -1,27 +1,74 @@
 import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumn;
 import java.awt.*;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.event.ActionEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+// The equation list is a table over plain EquationEntry rows. Only visible rows are laid out and painted, through
+// one shared renderer per column and one shared text editor, so thousands of equations cost no more to scroll than
+// a screenful.
 class Sidebar extends JPanel {
-    private final JPanel equationList;
-    private final ArrayList<EquationBox> equationBoxes;
+    // Typing is parsed once the field has been quiet this long rather than on every keystroke.
+    private static final int PARSE_DELAY_MS = 150;
+    private static final int STATUS_COLUMN = 0;
+    private static final int TEXT_COLUMN = 1;
+    private static final int REMOVE_COLUMN = 2;
+
+    private final List<EquationEntry> entries = new ArrayList<>();
+    private final EquationTableModel model = new EquationTableModel();
+    private final JTable table;
+    private final JTextField editorField = new JTextField();
+    private final Timer parseTimer;
+    private final JPopupMenu colorMenu = new JPopupMenu();
+    private EquationEntry colorMenuEntry;
     private EquationListener listener;
+    // What the listener was last told about each entry, and the entries touched since then.
+    private final Map<EquationEntry, Published> published = new HashMap<>();
+    private final Set<EquationEntry> dirty = new LinkedHashSet<>();
+    private final Set<EquationEntry> removed = new HashSet<>();
+    private boolean flushScheduled;
+    private int nextId;
 
     public Sidebar() {
         setLayout(new BorderLayout());
 
-        equationList = new JPanel();
-        equationList.setLayout(new BoxLayout(equationList, BoxLayout.Y_AXIS));
+        table = new JTable(model);
+        table.setTableHeader(null);
+        table.setRowHeight(30);
+        table.setShowGrid(false);
+        table.setFillsViewportHeight(true);
+        table.setRowSelectionAllowed(false);
+        table.setPreferredScrollableViewportSize(new Dimension(245, 400));
+        table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        configureColumns();
+        addTableListeners();
+        createColorMenu();
 
-        equationBoxes = new ArrayList<>();
+        parseTimer = new Timer(PARSE_DELAY_MS, e -> parseEditedText());
+        parseTimer.setRepeats(false);
+        editorField.getDocument().addDocumentListener((SimpleDocumentListener) parseTimer::restart);
 
-        addEquationBox();
+        addEquation();
 
-        JScrollPane scrollPane = new JScrollPane(equationList);
+        JScrollPane scrollPane = new JScrollPane(table);
         add(scrollPane, BorderLayout.CENTER);
 
         JButton addButton = new JButton("+");
-        addButton.addActionListener(e -> addEquationBox());
+        addButton.addActionListener(e -> {
+            int row = addEquation();
+            table.scrollRectToVisible(table.getCellRect(row, TEXT_COLUMN, true));
+            if (table.editCellAt(row, TEXT_COLUMN)) editorField.requestFocusInWindow();
+        });
         add(addButton, BorderLayout.SOUTH);
     }
 
@@ -29,48 +76,284 @@ class Sidebar extends JPanel {
         this.listener = listener;
     }
 
-    private void addEquationBox() {
-        EquationBox equationBox = new EquationBox();
-        equationBox.setPreferredSize(new Dimension(245, 30));
-        equationBox.setMaximumSize(new Dimension(245, 30));
-        equationBox.setMinimumSize(new Dimension(245, 30));
-        equationBoxes.add(equationBox);
-        equationList.add(equationBox);
+    public List<Session.Equation> getEquations() {
+        stopEditing();
+        List<Session.Equation> equations = new ArrayList<>(entries.size());
+        for (EquationEntry entry : entries) {
+            equations.add(new Session.Equation(entry.getText(), entry.getColor(), entry.isGraphed()));
+        }
+        return equations;
+    }
+
+    // Canonical forms of every equation that parses, whether or not it is shown.
+    public Set<String> getCanonicalForms() {
+        Set<String> forms = new HashSet<>();
+        for (EquationEntry entry : entries) {
+            if (entry.getCanonicalForm() != null) forms.add(entry.getCanonicalForm());
+        }
+        return forms;
+    }
+
+    // Replaces every row with the saved equations; the listener hears about it as one update.
+    public void setEquations(List<Session.Equation> equations) {
+        cancelEditing();
+        for (EquationEntry entry : entries) {
+            removed.add(entry);
+            markDirty(entry);
+        }
+        entries.clear();
+        for (Session.Equation equation : equations) {
+            EquationEntry entry = newEntry();
+            entry.setColor(equation.getColor());
+            entry.setGraphed(equation.isGraphed());
+            entry.setText(equation.getText());
+            entries.add(entry);
+            markDirty(entry);
+        }
+        if (entries.isEmpty()) entries.add(newEntry());
+        model.fireTableDataChanged();
+    }
+
+    private EquationEntry newEntry() {
+        EquationEntry entry = new EquationEntry(nextId++);
+        published.put(entry, new Published());
+        return entry;
+    }
+
+    private int addEquation() {
+        entries.add(newEntry());
+        int row = entries.size() - 1;
+        model.fireTableRowsInserted(row, row);
+        return row;
+    }
+
+    // Appends one row per non-blank line, notifying the table once for the whole block.
+    private void addEquations(String lines) {
+        int first = entries.size();
+        for (String line : lines.split("\\R")) {
+            if (line.isBlank()) continue;
+            EquationEntry entry = newEntry();
+            entry.setText(line.strip());
+            entries.add(entry);
+            markDirty(entry);
+        }
+        if (entries.size() > first) model.fireTableRowsInserted(first, entries.size() - 1);
+    }
+
+    private void removeEquation(int row) {
+        cancelEditing();
+        EquationEntry entry = entries.remove(row);
+        model.fireTableRowsDeleted(row, row);
+        removed.add(entry);
+        markDirty(entry);
+    }
+
+    private void configureColumns() {
+        TableColumn status = table.getColumnModel().getColumn(STATUS_COLUMN);
+        status.setMinWidth(30);
+        status.setMaxWidth(30);
+        JLabel statusCircle = new JLabel("◯", SwingConstants.CENTER);
+        statusCircle.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        status.setCellRenderer((table, value, selected, focused, row, column) -> {
+            EquationEntry entry = (EquationEntry) value;
+            if (!entry.isValidEquation()) {
+                statusCircle.setForeground(Color.RED);
+                statusCircle.setText("◯");
+            } else if (entry.isGraphed()) {
+                statusCircle.setForeground(entry.getColor());
+                statusCircle.setText("●");
+            } else {
+                statusCircle.setForeground(Color.BLACK);
+                statusCircle.setText("◯");
+            }
+            return statusCircle;
+        });
+
+        DefaultCellEditor editor = new DefaultCellEditor(editorField);
+        editor.setClickCountToStart(1);
+        table.getColumnModel().getColumn(TEXT_COLUMN).setCellEditor(editor);
+
+        TableColumn remove = table.getColumnModel().getColumn(REMOVE_COLUMN);
+        remove.setMinWidth(45);
+        remove.setMaxWidth(45);
+        JButton removeButton = new JButton("❌");
+        remove.setCellRenderer((table, value, selected, focused, row, column) -> removeButton);
+    }
+
+    private void addTableListeners() {
+        table.addMouseListener(new MouseAdapter() {
+            private Timer holdTimer;
 
-        equationBox.setEquationChangeListener(new EquationBox.EquationChangeListener() {
             @Override
-            public void onEquationChange() {
-                notifyEquationListener();
+            public void mousePressed(MouseEvent evt) {
+                int row = table.rowAtPoint(evt.getPoint());
+                if (row < 0 || table.columnAtPoint(evt.getPoint()) != STATUS_COLUMN) return;
+                EquationEntry entry = entries.get(row);
+                holdTimer = new Timer(500, e -> showColorMenu(entry, evt.getX(), evt.getY()));
+                holdTimer.setRepeats(false);
+                holdTimer.start();
             }
 
             @Override
-            public void onEquationRemove(EquationBox equationBox) {
-                removeEquationBox(equationBox);
+            public void mouseReleased(MouseEvent evt) {
+                if (holdTimer != null && holdTimer.isRunning()) {
+                    holdTimer.stop();
+                    int row = table.rowAtPoint(evt.getPoint());
+                    if (row >= 0 && entries.get(row).isValidEquation()) {
+                        toggleGraphingStatus(row);
+                    }
+                }
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent evt) {
+                int row = table.rowAtPoint(evt.getPoint());
+                if (row >= 0 && table.columnAtPoint(evt.getPoint()) == REMOVE_COLUMN) {
+                    removeEquation(row);
+                }
             }
         });
 
-        equationList.revalidate();
-        equationList.repaint();
+        // Pasting outside the editor adds a row per line, for bringing in generated equation sets.
+        table.getActionMap().put("paste", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                try {
+                    Object text = Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+                    addEquations((String) text);
+                } catch (Exception ex) {
+                    UIManager.getLookAndFeel().provideErrorFeedback(table);
+                }
+            }
+        });
     }
 
-    private void removeEquationBox(EquationBox equationBox) {
-        equationBoxes.remove(equationBox);
-        equationList.remove(equationBox);
-        equationList.revalidate();
-        equationList.repaint();
-        notifyEquationListener();
+    private void createColorMenu() {
+        for (Color color : GrapherUtils.CURVE_COLORS) {
+            JMenuItem menuItem = new JMenuItem(" ");
+            menuItem.setBackground(color);
+            menuItem.setOpaque(true);
+            menuItem.addActionListener(e -> {
+                if (colorMenuEntry == null) return;
+                colorMenuEntry.setColor(color);
+                entryChanged(colorMenuEntry);
+            });
+            colorMenu.add(menuItem);
+        }
+    }
+
+    private void showColorMenu(EquationEntry entry, int x, int y) {
+        colorMenuEntry = entry;
+        colorMenu.show(table, x, y);
+    }
+
+    private void toggleGraphingStatus(int row) {
+        EquationEntry entry = entries.get(row);
+        entry.setGraphed(!entry.isGraphed());
+        entryChanged(entry);
+    }
+
+    // Repaints the entry's row if it is still listed and queues it for the listener.
+    private void entryChanged(EquationEntry entry) {
+        int row = entries.indexOf(entry);
+        if (row >= 0) model.fireTableRowsUpdated(row, row);
+        markDirty(entry);
+    }
+
+    // Parses what is being typed into the row being edited without waiting for the edit to be committed.
+    private void parseEditedText() {
+        if (!table.isEditing() || table.getEditingColumn() != TEXT_COLUMN) return;
+        model.setValueAt(editorField.getText(), table.getEditingRow(), TEXT_COLUMN);
+    }
+
+    private void stopEditing() {
+        if (table.isEditing()) table.getCellEditor().stopCellEditing();
+    }
+
+    private void cancelEditing() {
+        parseTimer.stop();
+        if (table.isEditing()) table.getCellEditor().cancelCellEditing();
+    }
+
+    // Changes are collected until the current event has been handled, so a burst of edits, recolours and removals
+    // reaches the listener as one update.
+    private void markDirty(EquationEntry entry) {
+        dirty.add(entry);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            SwingUtilities.invokeLater(this::notifyEquationListener);
+        }
     }
 
     private void notifyEquationListener() {
-        if (listener != null) {
-            ArrayList<XYGrapher> graphers = new ArrayList<>();
-            for (EquationBox box : equationBoxes) {
-                XYGrapher grapher = box.getGrapher();
-                if (grapher != null) {
-                    graphers.add(grapher);
-                }
+        flushScheduled = false;
+        List<EquationChange> changes = new ArrayList<>();
+        for (EquationEntry entry : dirty) {
+            Published state = published.get(entry);
+            if (state == null) continue;
+            boolean isRemoved = removed.contains(entry);
+            XYGrapher grapher = isRemoved ? null : entry.getGrapher();
+            Color color = entry.getColor();
+
+            EquationChange.Kind kind = null;
+            if (grapher == null) {
+                if (state.grapher != null) kind = EquationChange.Kind.REMOVED;
+            } else if (state.grapher == null) {
+                kind = EquationChange.Kind.ADDED;
+            } else if (state.grapher != grapher) {
+                kind = EquationChange.Kind.CHANGED;
+            } else if (!color.equals(state.color)) {
+                kind = EquationChange.Kind.RECOLORED;
             }
-            listener.onEquationsUpdated(graphers);
+            if (kind != null) changes.add(new EquationChange(kind, entry.getId(), grapher, color));
+
+            if (isRemoved) {
+                published.remove(entry);
+            } else {
+                state.grapher = grapher;
+                state.color = color;
+            }
+        }
+        dirty.clear();
+        removed.clear();
+
+        if (listener != null && !changes.isEmpty()) {
+            listener.onEquationsChanged(changes);
+        }
+    }
+
+    private final class EquationTableModel extends AbstractTableModel {
+        @Override
+        public int getRowCount() {
+            return entries.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 3;
         }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            EquationEntry entry = entries.get(row);
+            return column == TEXT_COLUMN ? entry.getText() : entry;
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return column == TEXT_COLUMN;
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            if (column != TEXT_COLUMN) return;
+            EquationEntry entry = entries.get(row);
+            if (entry.setText((String) value)) entryChanged(entry);
+        }
+    }
+
+    private static final class Published {
+        XYGrapher grapher;
+        Color color;
     }
 }
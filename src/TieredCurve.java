@@ -0,0 +1,71 @@
+import java.util.function.DoubleUnaryOperator;
+
+// Compiles a parsed curve at the precision a given scale needs, keeping the last two compilations so a coarse preview
+// and the full sampling of the same view do not evict each other. Error budgets are rounded down to a power of two,
+// so zooming reuses a compilation until the scale changes by a factor of two.
+final class TieredCurve {
+    private final Expression x;
+    private final Expression y;
+    private volatile Tier last;
+    private volatile Tier previous;
+
+    // A null x expression means x(t) = t, as for function graphers.
+    TieredCurve(Expression x, Expression y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    Curve curve(double xTolerance, double yTolerance) {
+        int xExponent = exponent(xTolerance);
+        int yExponent = exponent(yTolerance);
+        Tier tier = last;
+        if (tier != null && tier.matches(xExponent, yExponent)) return tier;
+        Tier older = previous;
+        if (older != null && older.matches(xExponent, yExponent)) {
+            previous = tier;
+            last = older;
+            return older;
+        }
+        previous = tier;
+        tier = new Tier(xExponent, yExponent, compile(x, xExponent), compile(y, yExponent));
+        last = tier;
+        return tier;
+    }
+
+    private static int exponent(double tolerance) {
+        return tolerance > 0 && tolerance < Double.POSITIVE_INFINITY ? Math.getExponent(tolerance) : Integer.MIN_VALUE;
+    }
+
+    private static DoubleUnaryOperator compile(Expression expression, int exponent) {
+        if (expression == null) return t -> t;
+        return expression.compileHot(exponent == Integer.MIN_VALUE ? 0 : Math.scalb(1.0, exponent));
+    }
+
+    private static final class Tier implements Curve {
+        final int xExponent;
+        final int yExponent;
+        final DoubleUnaryOperator x;
+        final DoubleUnaryOperator y;
+
+        Tier(int xExponent, int yExponent, DoubleUnaryOperator x, DoubleUnaryOperator y) {
+            this.xExponent = xExponent;
+            this.yExponent = yExponent;
+            this.x = x;
+            this.y = y;
+        }
+
+        boolean matches(int xExponent, int yExponent) {
+            return this.xExponent == xExponent && this.yExponent == yExponent;
+        }
+
+        @Override
+        public double x(double t) {
+            return x.applyAsDouble(t);
+        }
+
+        @Override
+        public double y(double t) {
+            return y.applyAsDouble(t);
+        }
+    }
+}
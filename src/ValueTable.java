@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+
+// The values of a set of graphs at evenly spaced parameter values: x for function graphs, which get one column, and
+// t for parametric graphs, which get an x and a y column. Implicit graphs and data series have no parameter and are
+// left out. Rows are evaluated on demand in blocks, so no table is ever held in memory whole.
+public final class ValueTable {
+    // A JTable cannot scroll much further than this many rows without its pixel height overflowing.
+    public static final int MAX_ROWS = 100_000_000;
+
+    // Enough for any number format writes, plus its separator.
+    private static final int MAX_FIELD_BYTES = 26;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    // 2^27 + 1, which splits a double into two halves whose products are exact.
+    private static final double SPLIT = 134217729.0;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    private final XYGrapher[] graphers;
+    private final String[] columnNames;
+    private final double from;
+    private final double step;
+    private final int rows;
+    // Decimal places of from and step, so that from + i * step can be rounded back to what the user typed.
+    private final int decimals;
+
+    public ValueTable(List<XYGrapher> graphers, double from, double to, double step) {
+        if (!(Double.isFinite(from) && Double.isFinite(to) && from <= to)) {
+            throw new IllegalArgumentException("Invalid range: " + from + " to " + to);
+        }
+        if (!(step > 0 && Double.isFinite(step))) throw new IllegalArgumentException("Invalid step: " + step);
+        double count = Math.floor((to - from) / step * (1 + 1e-12)) + 1;
+        if (count > MAX_ROWS) throw new IllegalArgumentException("Too many rows: " + (long) count);
+
+        List<XYGrapher> tabulated = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        boolean functions = false;
+        boolean parametric = false;
+        names.add("");
+        for (XYGrapher grapher : graphers) {
+            String label = grapher.getLabel() != null ? grapher.getLabel() : "y" + (tabulated.size() + 1);
+            if (grapher instanceof FunctionGrapher) {
+                names.add(label);
+                functions = true;
+            } else if (grapher instanceof ParametricGrapher) {
+                names.add(label + " x");
+                names.add(label + " y");
+                parametric = true;
+            } else {
+                continue;
+            }
+            tabulated.add(grapher);
+        }
+        names.set(0, parametric ? functions ? "x / t" : "t" : "x");
+
+        this.graphers = tabulated.toArray(new XYGrapher[0]);
+        this.columnNames = names.toArray(new String[0]);
+        this.from = from;
+        this.step = step;
+        this.rows = (int) count;
+        this.decimals = Math.max(decimals(from), decimals(step));
+    }
+
+    private static int decimals(double value) {
+        return Math.max(0, BigDecimal.valueOf(value).stripTrailingZeros().scale());
+    }
+
+    public int rows() { return rows; }
+
+    public int columns() { return columnNames.length; }
+
+    public String columnName(int column) { return columnNames[column]; }
+
+    public double parameter(int row) {
+        double value = from + row * step;
+        if (decimals >= POWERS_OF_TEN.length) return value;
+        double scaled = value * POWERS_OF_TEN[decimals];
+        return Math.abs(scaled) < 0x1p53 ? Math.rint(scaled) / POWERS_OF_TEN[decimals] : value;
+    }
+
+    // Fills values[column][0, count) for rows firstRow onwards. NaN marks a value that does not exist: x excluded
+    // from a function, or t outside a parametric graph's range.
+    public void evaluate(int firstRow, int count, double[][] values) {
+        double[] parameters = values[0];
+        for (int i = 0; i < count; i++) {
+            parameters[i] = parameter(firstRow + i);
+        }
+        int column = 1;
+        for (XYGrapher grapher : graphers) {
+            if (grapher instanceof FunctionGrapher) {
+                double[] ys = values[column++];
+                ((FunctionGrapher) grapher).yValues(parameters, ys, 0, count);
+                if (grapher instanceof DiscontinuousFunctionGrapher) {
+                    DiscontinuousFunctionGrapher discontinuous = (DiscontinuousFunctionGrapher) grapher;
+                    for (int i = 0; i < count; i++) {
+                        if (discontinuous.exclude(parameters[i])) ys[i] = Double.NaN;
+                    }
+                }
+            } else {
+                ParametricGrapher curve = (ParametricGrapher) grapher;
+                double[] xs = values[column++];
+                double[] ys = values[column++];
+                double tStart = curve.tStart();
+                double tEnd = curve.tEnd();
+                for (int i = 0; i < count; i++) {
+                    double t = parameters[i];
+                    boolean inside = t >= tStart && t <= tEnd;
+                    xs[i] = inside ? curve.xValue(t) : Double.NaN;
+                    ys[i] = inside ? curve.yValue(t) : Double.NaN;
+                }
+            }
+        }
+    }
+
+    // Writes the table as CSV with a header row, leaving missing values empty. Chunks of rows are evaluated and
+    // formatted on the common pool, a few ahead of the one being written, so memory stays bounded by the chunks in
+    // flight. Returns false, with the file deleted, if abandoned because cancelled became true.
+    public boolean writeCsv(Path file, BooleanSupplier cancelled) throws IOException {
+        int chunkRows = Math.max(1, CHUNK_BYTES / (columns() * MAX_FIELD_BYTES));
+        int chunkCount = (rows + chunkRows - 1) / chunkRows;
+        int ahead = 2 * ForkJoinPool.getCommonPoolParallelism();
+        ConcurrentLinkedQueue<Chunk> free = new ConcurrentLinkedQueue<>();
+        ArrayDeque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>();
+        boolean complete = false;
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(out, ByteBuffer.wrap(header().getBytes(StandardCharsets.UTF_8)));
+            int submitted = 0;
+            for (int c = 0; c < chunkCount; c++) {
+                for (; submitted < chunkCount && submitted <= c + ahead; submitted++) {
+                    int firstRow = submitted * chunkRows;
+                    int count = Math.min(chunkRows, rows - firstRow);
+                    pending.add(ForkJoinPool.commonPool().submit(() -> {
+                        Chunk chunk = free.poll();
+                        if (chunk == null) chunk = new Chunk(columns(), chunkRows);
+                        format(firstRow, count, chunk);
+                        return chunk;
+                    }));
+                }
+                Chunk chunk = pending.poll().join();
+                write(out, ByteBuffer.wrap(chunk.text, 0, chunk.length));
+                free.add(chunk);
+                if (cancelled.getAsBoolean()) return false;
+            }
+            complete = true;
+        } finally {
+            for (ForkJoinTask<Chunk> task : pending) {
+                task.cancel(false);
+            }
+            if (!complete) Files.deleteIfExists(file);
+        }
+        return true;
+    }
+
+    private static void write(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) out.write(bytes);
+    }
+
+    private String header() {
+        StringBuilder header = new StringBuilder();
+        for (int c = 0; c < columnNames.length; c++) {
+            if (c > 0) header.append(',');
+            String name = columnNames[c];
+            if (name.indexOf(',') >= 0 || name.indexOf('"') >= 0) {
+                header.append('"').append(name.replace("\"", "\"\"")).append('"');
+            } else {
+                header.append(name);
+            }
+        }
+        return header.append('\n').toString();
+    }
+
+    private void format(int firstRow, int count, Chunk chunk) {
+        evaluate(firstRow, count, chunk.values);
+        byte[] text = chunk.text;
+        int at = 0;
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < chunk.values.length; c++) {
+                if (c > 0) text[at++] = ',';
+                at = format(chunk.values[c][i], text, at);
+            }
+            text[at++] = '\n';
+        }
+        chunk.length = at;
+    }
+
+    // Formatted with format(), or empty for NaN.
+    public static String toText(double value) {
+        byte[] text = new byte[MAX_FIELD_BYTES];
+        return new String(text, 0, format(value, text, 0), StandardCharsets.ISO_8859_1);
+    }
+
+    // Writes value at out[at] and returns the index after it, as the shortest decimal of 15 to 17 significant digits
+    // that reads back as exactly value. Magnitudes outside [1e-6, 1e15) fall back to Double.toString, which allocates.
+    static int format(double value, byte[] out, int at) {
+        if (Double.isNaN(value)) return at;
+        if (value == 0) {
+            out[at] = '0';
+            return at + 1;
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude >= 1e-6 && magnitude < 1e15) {
+            // Scale so the integer part has 17 digits; the estimate from log10 can be one out either way.
+            int scale = 16 - (int) Math.floor(Math.log10(magnitude));
+            if (magnitude * POWERS_OF_TEN[scale] >= 1e17) scale--;
+            if (scale < POWERS_OF_TEN.length - 1 && magnitude * POWERS_OF_TEN[scale] < 1e16) scale++;
+            double power = POWERS_OF_TEN[scale];
+
+            // magnitude * power exactly, as the integer part and an error term, by Dekker's product.
+            double product = magnitude * power;
+            double a = SPLIT * magnitude;
+            double aHigh = a - (a - magnitude);
+            double aLow = magnitude - aHigh;
+            double b = SPLIT * power;
+            double bHigh = b - (b - power);
+            double bLow = power - bHigh;
+            double error = ((aHigh * bHigh - product) + aHigh * bLow + aLow * bHigh) + aLow * bLow;
+            long whole = (long) product;
+
+            // A decimal reads back as value if it is nearer to value than half the gap to either neighbour.
+            double halfGap = 0.5 * (1 - 1e-9) * Math.ulp(Math.nextDown(magnitude)) * power;
+            // Units of 100, 10 and 1 try 15, 16 and 17 significant digits.
+            for (long unit = 100; unit >= 1; unit /= 10) {
+                long digits = Math.floorDiv(whole, unit);
+                double remainder = (whole - digits * unit) + error;
+                digits += (long) Math.floor(remainder / unit + 0.5);
+                if (Math.abs((digits * unit - whole) - error) < halfGap) {
+                    int decimals = scale - (unit == 100 ? 2 : unit == 10 ? 1 : 0);
+                    while (decimals > 0 && digits % 10 == 0) {
+                        digits /= 10;
+                        decimals--;
+                    }
+                    return writeDecimal(value < 0, digits, decimals, out, at);
+                }
+            }
+        }
+        String text = Double.toString(value);
+        for (int i = 0; i < text.length(); i++) {
+            out[at++] = (byte) text.charAt(i);
+        }
+        return at;
+    }
+
+    // Writes digits * 10^-scale.
+    private static int writeDecimal(boolean negative, long digits, int scale, byte[] out, int at) {
+        if (negative) out[at++] = '-';
+        int length = 1;
+        for (long rest = digits / 10; rest > 0; rest /= 10) length++;
+        if (length <= scale) {
+            out[at++] = '0';
+            out[at++] = '.';
+            for (int i = length; i < scale; i++) out[at++] = '0';
+        }
+        boolean point = scale > 0 && length > scale;
+        int end = at + length + (point ? 1 : 0);
+        int position = end;
+        for (int i = 0; i < length; i++) {
+            if (point && i == scale) out[--position] = '.';
+            out[--position] = (byte) ('0' + digits % 10);
+            digits /= 10;
+        }
+        return end;
+    }
+
+    // A block of rows being written: the evaluated columns and their text, reused once written.
+    private static final class Chunk {
+        final double[][] values;
+        final byte[] text;
+        int length;
+
+        Chunk(int columns, int rows) {
+            values = new double[columns][rows];
+            text = new byte[rows * (columns * MAX_FIELD_BYTES + 1)];
+        }
+    }
+}
@@ -0,0 +1,184 @@
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+// A table of values for the graphs on screen over an editable range and step, with an export to CSV. Only the rows
+// the table asks for are evaluated, a block at a time, so ranges of millions of rows scroll freely.
+class ValueTableDialog extends JDialog {
+    private static final int BLOCK_ROWS = 256;
+    private static final int CACHED_BLOCKS = 16;
+    private static final int DEFAULT_ROWS = 20;
+
+    private final Supplier<List<XYGrapher>> graphers;
+    private final JTextField fromField = new JTextField(8);
+    private final JTextField toField = new JTextField(8);
+    private final JTextField stepField = new JTextField(6);
+    private final ValueTableModel model = new ValueTableModel();
+    private final JButton exportButton = new JButton("Export CSV...");
+    private final JLabel status = new JLabel(" ");
+    private ValueTable values;
+    private SwingWorker<Boolean, Void> export;
+
+    public ValueTableDialog(Frame owner, Supplier<List<XYGrapher>> graphers, Viewport viewport) {
+        super(owner, "Table of Values");
+        this.graphers = graphers;
+        setLayout(new BorderLayout());
+
+        // Start with about DEFAULT_ROWS rows at a round step across the visible x range.
+        double step = Math.pow(10, Math.floor(Math.log10(viewport.xRange() / DEFAULT_ROWS)));
+        fromField.setText(ValueTable.toText(Math.floor(viewport.minX() / step) * step));
+        toField.setText(ValueTable.toText(Math.ceil(viewport.maxX() / step) * step));
+        stepField.setText(ValueTable.toText(step));
+
+        JPanel range = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        range.add(new JLabel("From"));
+        range.add(fromField);
+        range.add(new JLabel("to"));
+        range.add(toField);
+        range.add(new JLabel("step"));
+        range.add(stepField);
+        JButton apply = new JButton("Apply");
+        apply.addActionListener(e -> graphsChanged());
+        range.add(apply);
+        fromField.addActionListener(e -> graphsChanged());
+        toField.addActionListener(e -> graphsChanged());
+        stepField.addActionListener(e -> graphsChanged());
+        add(range, BorderLayout.NORTH);
+
+        JTable table = new JTable(model);
+        DefaultTableCellRenderer numbers = new DefaultTableCellRenderer();
+        numbers.setHorizontalAlignment(SwingConstants.RIGHT);
+        table.setDefaultRenderer(Object.class, numbers);
+        table.setFillsViewportHeight(true);
+        table.setPreferredScrollableViewportSize(new Dimension(480, 360));
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(status, BorderLayout.CENTER);
+        exportButton.addActionListener(e -> exportOrCancel());
+        bottom.add(exportButton, BorderLayout.EAST);
+        add(bottom, BorderLayout.SOUTH);
+
+        graphsChanged();
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    // Rebuilds the table from the current graphs and range fields.
+    public void graphsChanged() {
+        try {
+            values = new ValueTable(graphers.get(), parse(fromField), parse(toField), parse(stepField));
+            status.setText(String.format(Locale.ROOT, "%,d rows", values.rows()));
+        } catch (IllegalArgumentException e) {
+            values = null;
+            status.setText(e.getMessage());
+        }
+        model.clearCache();
+        model.fireTableStructureChanged();
+    }
+
+    private static double parse(JTextField field) {
+        try {
+            return Double.parseDouble(field.getText().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + field.getText());
+        }
+    }
+
+    private void exportOrCancel() {
+        if (export != null) {
+            export.cancel(false);
+            return;
+        }
+        if (values == null) return;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("*.csv", "csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path chosen = chooser.getSelectedFile().toPath();
+        Path path = chosen.getFileName().toString().contains(".")
+                ? chosen : chosen.resolveSibling(chosen.getFileName() + ".csv");
+
+        ValueTable exported = values;
+        long start = System.nanoTime();
+        exportButton.setText("Cancel");
+        status.setText("Exporting " + path.getFileName() + "...");
+        export = new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() throws Exception {
+                return exported.writeCsv(path, this::isCancelled);
+            }
+
+            @Override
+            protected void done() {
+                export = null;
+                exportButton.setText("Export CSV...");
+                try {
+                    get();
+                    status.setText(String.format(Locale.ROOT, "Wrote %,d rows to %s in %.1f s", exported.rows(),
+                            path.getFileName(), (System.nanoTime() - start) / 1e9));
+                } catch (CancellationException e) {
+                    status.setText("Export cancelled");
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    status.setText(" ");
+                    JOptionPane.showMessageDialog(ValueTableDialog.this, cause.getMessage(), "Export CSV",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        export.execute();
+    }
+
+    // Keeps the most recently shown blocks of rows, each in the slot its block number maps to.
+    private final class ValueTableModel extends AbstractTableModel {
+        private final int[] cachedBlocks = new int[CACHED_BLOCKS];
+        private final double[][][] blocks = new double[CACHED_BLOCKS][][];
+
+        ValueTableModel() {
+            clearCache();
+        }
+
+        void clearCache() {
+            Arrays.fill(cachedBlocks, -1);
+        }
+
+        @Override
+        public int getRowCount() {
+            return values == null ? 0 : values.rows();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return values == null ? 0 : values.columns();
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return values.columnName(column);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            int block = row / BLOCK_ROWS;
+            int slot = block % CACHED_BLOCKS;
+            if (cachedBlocks[slot] != block) {
+                if (blocks[slot] == null || blocks[slot].length != values.columns()) {
+                    blocks[slot] = new double[values.columns()][BLOCK_ROWS];
+                }
+                int first = block * BLOCK_ROWS;
+                values.evaluate(first, Math.min(BLOCK_ROWS, values.rows() - first), blocks[slot]);
+                cachedBlocks[slot] = block;
+            }
+            return ValueTable.toText(blocks[slot][column][row % BLOCK_ROWS]);
+        }
+    }
+}
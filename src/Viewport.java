@@ -0,0 +1,97 @@
+public class Viewport {
+    private final double minX;
+    private final double minY;
+    private final double xRange;
+    private final double yRange;
+    private final int pixelsWide;
+    private final int pixelsHigh;
+    private final double xScale;
+    private final double yScale;
+
+    public Viewport(Coordinate start, double xRange, double yRange, int pixelsWide, int pixelsHigh) {
+        this(start.getX(), start.getY(), xRange, yRange, pixelsWide, pixelsHigh);
+    }
+
+    public Viewport(double minX, double minY, double xRange, double yRange, int pixelsWide, int pixelsHigh) {
+        this.minX = minX;
+        this.minY = minY;
+        this.xRange = xRange;
+        this.yRange = yRange;
+        this.pixelsWide = pixelsWide;
+        this.pixelsHigh = pixelsHigh;
+        this.xScale = pixelsWide / xRange;
+        this.yScale = pixelsHigh / yRange;
+    }
+
+    public Viewport resize(int newPixelsWide, int newPixelsHigh) {
+        return new Viewport(minX, minY, xRange, yRange, newPixelsWide, newPixelsHigh);
+    }
+
+    public Viewport pan(double dxPixels, double dyPixels) {
+        return new Viewport(minX - dxPixels * xPerPixel(), minY + dyPixels * yPerPixel(), xRange, yRange, pixelsWide, pixelsHigh);
+    }
+
+    // Scales the visible ranges by factor while keeping the world point under (xPixel, yPixel) fixed.
+    public Viewport zoom(double factor, double xPixel, double yPixel) {
+        double anchorX = minX + xPixel * xPerPixel();
+        double anchorY = minY + yRange - yPixel * yPerPixel();
+        return new Viewport(anchorX - (anchorX - minX) * factor, anchorY - (anchorY - minY) * factor,
+                xRange * factor, yRange * factor, pixelsWide, pixelsHigh);
+    }
+
+    // Grows the viewport by whole pixels on every side, keeping the same scale.
+    public Viewport expand(double fraction) {
+        int marginX = (int) Math.ceil(pixelsWide * fraction);
+        int marginY = (int) Math.ceil(pixelsHigh * fraction);
+        double dx = marginX * xPerPixel();
+        double dy = marginY * yPerPixel();
+        return new Viewport(minX - dx, minY - dy, xRange + 2 * dx, yRange + 2 * dy,
+                pixelsWide + 2 * marginX, pixelsHigh + 2 * marginY);
+    }
+
+    // The same region with pixels factor times larger, for sampling a quick low-resolution preview.
+    public Viewport coarsen(int factor) {
+        return resize(Math.max(1, pixelsWide / factor), Math.max(1, pixelsHigh / factor));
+    }
+
+    public Viewport withXRange(double newMinX, double newMaxX) {
+        int pixels = (int) Math.max(1, Math.ceil((newMaxX - newMinX) / xPerPixel()));
+        return new Viewport(newMinX, minY, pixels * xPerPixel(), yRange, pixels, pixelsHigh);
+    }
+
+    public boolean containsY(Viewport other) {
+        return minY <= other.minY && maxY() >= other.maxY();
+    }
+
+    public boolean contains(Viewport other) {
+        return minX <= other.minX && maxX() >= other.maxX() && containsY(other);
+    }
+
+    public double toPixelX(double x) {
+        return (x - minX) * xScale;
+    }
+
+    public double toPixelY(double y) {
+        return (minY + yRange - y) * yScale;
+    }
+
+    public double minX() { return minX; }
+
+    public double minY() { return minY; }
+
+    public double maxX() { return minX + xRange; }
+
+    public double maxY() { return minY + yRange; }
+
+    public double xRange() { return xRange; }
+
+    public double yRange() { return yRange; }
+
+    public int pixelsWide() { return pixelsWide; }
+
+    public int pixelsHigh() { return pixelsHigh; }
+
+    public double xPerPixel() { return xRange / pixelsWide; }
+
+    public double yPerPixel() { return yRange / pixelsHigh; }
+}
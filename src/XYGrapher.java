@@ -1,13 +1,55 @@
 import java.awt.*;
+import java.util.function.UnaryOperator;
 
 public abstract class XYGrapher extends GoodDrawGraph {
     private Color graphColor = Color.BLACK;
+    private String label;
+    private String canonicalForm;
 
     public abstract Coordinate xyStart();
     public abstract double xRange();
     public abstract double yRange();
     public abstract Coordinate getPoint(int pointNum);
 
+    public int getPoints(int firstPoint, double[] xs, double[] ys, byte[] flags, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            Coordinate point = getPoint(firstPoint + i);
+            if (point == null) return i;
+            xs[offset + i] = point.getX();
+            ys[offset + i] = point.getY();
+            flags[offset + i] = SampleBuffer.flag(point.drawFrom(), point.drawTo());
+        }
+        return count;
+    }
+
+    public Curve curve() {
+        return null;
+    }
+
+    // The curve evaluated to within xTolerance and yTolerance (world units) of curve(); graphers with cheaper
+    // approximations may return those when the error would not be visible.
+    public Curve curve(double xTolerance, double yTolerance) {
+        return curve();
+    }
+
+    // The exact curve with its velocity, for graphers that can differentiate themselves; null if not.
+    public DifferentiableCurve differentiableCurve() {
+        return null;
+    }
+
+    // For function graphers that can bound y over a whole x-interval, the interval extension of yValue; null if not.
+    public UnaryOperator<Interval> intervalFunction() {
+        return null;
+    }
+
+    public double curveStart(Viewport viewport) {
+        return 0;
+    }
+
+    public double curveEnd(Viewport viewport) {
+        return 0;
+    }
+
     public void setGraphColor(Color color) {
         this.graphColor = color;
     }
@@ -15,4 +57,22 @@ public abstract class XYGrapher extends GoodDrawGraph {
     public Color getGraphColor() {
         return this.graphColor;
     }
-}
\ No newline at end of file
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+
+    // Graphers with the same canonical form plot the same curve and may share cached samples; null means the curve
+    // is only known to match itself.
+    public void setCanonicalForm(String canonicalForm) {
+        this.canonicalForm = canonicalForm;
+    }
+
+    public String getCanonicalForm() {
+        return this.canonicalForm;
+    }
+}
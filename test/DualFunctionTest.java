@@ -0,0 +1,109 @@
+import java.util.Locale;
+
+// Checks forward-mode derivatives against evaluate() and a central difference for every binary operator with the
+// constant on the left, on the right and on neither side. Run with the main classes and the library on the class path.
+public class DualFunctionTest {
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "^"};
+    private static final String F = "(x^2+1)";
+    private static final String G = "(sin(x)+2)";
+    private static final double[] POINTS = {-1.7, -0.4, 0.3, 1.1, 2.5};
+
+    private int checks;
+    private int failures;
+
+    public static void main(String[] args) {
+        DualFunctionTest test = new DualFunctionTest();
+        test.operators();
+        test.powers();
+        test.features();
+        System.out.printf(Locale.ROOT, "%d checks, %d failed%n", test.checks, test.failures);
+        if (test.failures > 0) System.exit(1);
+    }
+
+    private void operators() {
+        for (String operator : OPERATORS) {
+            for (String constant : new String[]{"3", "0.5"}) {
+                checkAgainstDifference(constant + operator + F);
+                checkAgainstDifference(F + operator + constant);
+            }
+            checkAgainstDifference(F + operator + G);
+        }
+    }
+
+    // Exponents that are constant only in value, and constant exponents at awkward bases.
+    private void powers() {
+        checkDual("x^(2+0*x)", -2, 4, -4);
+        checkDual("x^0", 0, 1, 0);
+        checkDual("x^0", -3, 1, 0);
+        checkDual("x^2", 0, 0, 0);
+        checkDual("(1+x)^2", 1, 4, 4);
+        checkDual("3+x^2", 0, 3, 0);
+    }
+
+    private void features() {
+        DualCurve curve = new DualCurve(null, ExpressionParser.parse("3+x^2", "x"));
+        CurveFeatures features = CurveFeatures.find(curve, new Viewport(-5, -1, 10, 10, 800, 600));
+        check("y=3+x^2 has one feature", features.size() == 1);
+        if (features.size() == 1) {
+            check("y=3+x^2 has a minimum at (0, 3)", features.kind(0) == CurveFeatures.MINIMUM
+                    && Math.abs(features.x(0)) < 1e-9 && Math.abs(features.y(0) - 3) < 1e-9);
+        }
+        checkTouchingRoot("x^2", 0);
+        checkTouchingRoot("(x-1)^2*(x+2)", 1);
+        curve = new DualCurve(null, ExpressionParser.parse("1+sin(x)", "x"));
+        features = CurveFeatures.find(curve, new Viewport(-10, -1, 20, 4, 800, 600));
+        for (int i = 0; i < features.size(); i++) {
+            if (features.kind(i) != CurveFeatures.ROOT) continue;
+            double x = features.x(i);
+            check("y=1+sin(x) has a root at " + x, Math.abs(1 + Math.sin(x)) < 1e-6);
+        }
+    }
+
+    // A root where the graph touches the axis has no sign change, and is found through its turning point.
+    private void checkTouchingRoot(String source, double root) {
+        DualCurve curve = new DualCurve(null, ExpressionParser.parse(source, "x"));
+        CurveFeatures features = CurveFeatures.find(curve, new Viewport(-4.31, -5, 10, 10, 800, 600));
+        int roots = 0;
+        for (int i = 0; i < features.size(); i++) {
+            if (features.kind(i) == CurveFeatures.ROOT && Math.abs(features.x(i) - root) < 1e-6) roots++;
+        }
+        check("y=" + source + " has one root at " + root + ", found " + roots, roots == 1);
+    }
+
+    private void checkAgainstDifference(String source) {
+        Expression expression = ExpressionParser.parse(source, "x");
+        DualFunction dual = expression.compileDual();
+        double[] slope = new double[1];
+        for (double x : POINTS) {
+            double expected = expression.evaluate(x);
+            if (!Double.isFinite(expected)) continue;
+            double h = 1e-6 * Math.max(1, Math.abs(x));
+            double difference = (expression.evaluate(x + h) - expression.evaluate(x - h)) / (2 * h);
+            double value = dual.apply(x, slope);
+            check(source + " at " + x + ": value " + value + ", expected " + expected,
+                    close(value, expected, 1e-12));
+            check(source + " at " + x + ": slope " + slope[0] + ", expected about " + difference,
+                    close(slope[0], difference, 1e-5));
+        }
+    }
+
+    private void checkDual(String source, double x, double value, double derivative) {
+        double[] slope = new double[1];
+        double actual = ExpressionParser.parse(source, "x").compileDual().apply(x, slope);
+        check(source + " at " + x + ": value " + actual + ", expected " + value, close(actual, value, 1e-12));
+        check(source + " at " + x + ": slope " + slope[0] + ", expected " + derivative,
+                close(slope[0], derivative, 1e-12));
+    }
+
+    private static boolean close(double actual, double expected, double tolerance) {
+        return Math.abs(actual - expected) <= tolerance * Math.max(1, Math.abs(expected));
+    }
+
+    private void check(String description, boolean passed) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED: " + description);
+        }
+    }
+}
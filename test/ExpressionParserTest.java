@@ -0,0 +1,83 @@
+import java.util.Locale;
+
+// Checks number syntax, including scientific notation, the t range of parametric equations, and which functions are
+// evaluated as expanded polynomials.
+public class ExpressionParserTest {
+    private int checks;
+    private int failures;
+
+    public static void main(String[] args) {
+        ExpressionParserTest test = new ExpressionParserTest();
+        test.numbers();
+        test.parametricRanges();
+        test.polynomials();
+        System.out.printf(Locale.ROOT, "%d checks, %d failed%n", test.checks, test.failures);
+        if (test.failures > 0) System.exit(1);
+    }
+
+    private void numbers() {
+        checkValue("1e5", 0, 1e5);
+        checkValue("2.5E-3", 0, 2.5e-3);
+        checkValue("3e+2x", 2, 600);
+        checkValue("2e", 0, 2 * Math.E);
+        checkValue("2e-x", 1, 2 * Math.E - 1);
+        checkValue("2exp(x)", 0, 2);
+        checkValue(".5e1", 0, 5);
+    }
+
+    private void parametricRanges() {
+        try {
+            ParametricGrapher grapher = (ParametricGrapher) EquationParser.parse("x=t;y=t;0<t<1e9");
+            check("t range 0<t<1e9 ends at " + grapher.tEnd(), grapher.tEnd() == 1e9);
+        } catch (Exception e) {
+            check("0<t<1e9 parses: " + e.getMessage(), false);
+        }
+        for (String range : new String[]{"1<t<1", "2<t<1", "0<t<1/0", "0<t<0/0"}) {
+            try {
+                EquationParser.parse("x=t;y=t;" + range);
+                check(range + " is rejected", false);
+            } catch (Exception e) {
+                check(range + " gives an invalid t range error, not: " + e.getMessage(),
+                        e.getMessage().startsWith("Invalid t range"));
+            }
+        }
+    }
+
+    // Only sums of c*x^n terms are expanded; (x-3)^30 expanded is off by millions at its root.
+    private void polynomials() {
+        checkFunction("y=(x-3)^30", 3, 0, false);
+        checkFunction("y=(x+1)^60", -1.5, Math.pow(0.5, 60), false);
+        checkFunction("y=(x+1)^1000", -1, 0, false);
+        checkFunction("y=(x-1)*(x+1)", 1, 0, false);
+        checkFunction("y=3x^2-2x+1", 2, 9, true);
+        checkFunction("y=2(x^3+x)/4", 2, 5, true);
+        checkFunction("y=x^200+1", 1, 2, true);
+    }
+
+    private void checkFunction(String equation, double x, double expected, boolean polynomial) {
+        try {
+            FunctionGrapher grapher = (FunctionGrapher) EquationParser.parse(equation);
+            check(equation + (polynomial ? " is" : " is not") + " a PolynomialGrapher",
+                    (grapher instanceof PolynomialGrapher) == polynomial);
+            double actual = grapher.yValue(x);
+            check(equation + " at " + x + " is " + actual + ", expected " + expected,
+                    Math.abs(actual - expected) <= 1e-12 * Math.max(1, Math.abs(expected)));
+        } catch (Exception e) {
+            check(equation + " parses: " + e.getMessage(), false);
+        }
+    }
+
+    private void checkValue(String source, double x, double expected) {
+        double actual = ExpressionParser.parse(source, "x").evaluate(x);
+        check(source + " at " + x + " is " + actual + ", expected " + expected,
+                Math.abs(actual - expected) <= 1e-12 * Math.max(1, Math.abs(expected)));
+    }
+
+    private void check(String description, boolean passed) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED: " + description);
+        }
+    }
+}